@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.CacheStats;
+import ru.yandex.practicum.filmorate.storage.cache.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.cache.CachingUserStorage;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/cache")
+@Profile("cache")
+@RequiredArgsConstructor
+public class CacheController {
+
+    private final CachingFilmStorage filmStorage;
+    private final CachingUserStorage userStorage;
+
+    @GetMapping("/stats")
+    public List<CacheStats> getStats() {
+        return List.of(filmStorage.cacheStats(), userStorage.cacheStats());
+    }
+}
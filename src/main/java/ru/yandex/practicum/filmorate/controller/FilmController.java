@@ -3,19 +3,33 @@ package ru.yandex.practicum.filmorate.controller;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.model.ChangeResult;
+import ru.yandex.practicum.filmorate.model.CursorPage;
+import ru.yandex.practicum.filmorate.model.EntityVersion;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFacets;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.service.SearchService;
+import ru.yandex.practicum.filmorate.storage.cache.ResponseCaches;
 
 import java.util.Collection;
+import java.util.List;
 
 @RestController
 @RequestMapping("/films")
@@ -24,20 +38,85 @@ import java.util.Collection;
 public class FilmController {
 
     private final FilmService filmService;
+    private final RecommendationService recommendationService;
+    private final SearchService searchService;
+    private final ResponseCaches responseCaches;
 
     @GetMapping
-    public Collection<Film> findAll() {
-        return filmService.findAll();
+    public ResponseEntity<Collection<Film>> findAll(@RequestParam(name = "after", required = false) String after,
+                                                    @RequestParam(name = "limit", required = false) Integer limit,
+                                                    @RequestParam(name = "genre", required = false) Integer genreId,
+                                                    @RequestParam(name = "mpa", required = false) Integer mpaId,
+                                                    @RequestParam(name = "yearFrom", required = false) Integer yearFrom,
+                                                    @RequestParam(name = "yearTo", required = false) Integer yearTo,
+                                                    @RequestParam(name = "maxDuration", required = false)
+                                                    Integer maxDuration) {
+        FilmFilter filter = new FilmFilter(genreId, mpaId, yearFrom, yearTo, maxDuration);
+        String key = after + ":" + limit + ":" + filter;
+        return responseCaches.films().get(key, () -> {
+            if (!filter.isEmpty()) {
+                return toResponse(searchService.filterFilms(filter, after, limit));
+            }
+            if (after == null && limit == null) {
+                return ResponseEntity.ok(filmService.findAll());
+            }
+            return toResponse(filmService.findPage(after, limit));
+        });
+    }
+
+    @GetMapping("/facets")
+    public FilmFacets getFacets(@RequestParam(name = "genre", required = false) Integer genreId,
+                                @RequestParam(name = "mpa", required = false) Integer mpaId,
+                                @RequestParam(name = "yearFrom", required = false) Integer yearFrom,
+                                @RequestParam(name = "yearTo", required = false) Integer yearTo,
+                                @RequestParam(name = "maxDuration", required = false) Integer maxDuration) {
+        return searchService.getFacets(new FilmFilter(genreId, mpaId, yearFrom, yearTo, maxDuration));
+    }
+
+    @GetMapping("/search")
+    public Collection<Film> search(@RequestParam(name = "q", required = false) String query,
+                                   @RequestParam(name = "count", required = false, defaultValue = "10") Integer count) {
+        return searchService.searchFilms(query, count);
+    }
+
+    @GetMapping("/autocomplete")
+    public List<Suggestion> autocomplete(@RequestParam(name = "prefix", required = false) String prefix,
+                                         @RequestParam(name = "count", required = false, defaultValue = "10")
+                                         Integer count) {
+        return searchService.autocompleteFilms(prefix, count);
     }
 
     @GetMapping("/{id}")
-    public Film getById(@PathVariable Integer id) {
-        return filmService.getFilmById(id);
+    public Film getById(@PathVariable Integer id, WebRequest request) {
+        // ETag берётся из той же строки, что и тело: кэш или склейка запросов не отдадут новый ETag со старым телом
+        Film film = filmService.getFilmById(id);
+        EntityVersion version = film.getVersion();
+        if (request.checkNotModified(version.toETag(), version.getUpdatedAt().toEpochMilli())) {
+            return null;
+        }
+        return film;
     }
 
     @GetMapping("/popular")
-    public Collection<Film> getPopularFilms(@RequestParam(name = "count", required = false, defaultValue = "10") Integer count) {
-        return filmService.getMostPopulars(count);
+    public Collection<Film> getPopularFilms(@RequestParam(name = "count", required = false, defaultValue = "10") Integer count,
+                                           @RequestParam(name = "genreId", required = false) Integer genreId,
+                                           @RequestParam(name = "mpaId", required = false) Integer mpaId,
+                                           @RequestParam(name = "year", required = false) Integer year) {
+        String key = count + ":" + genreId + ":" + mpaId + ":" + year;
+        return responseCaches.popular().get(key, () -> filmService.getMostPopulars(count, genreId, mpaId, year));
+    }
+
+    @GetMapping("/trending")
+    public Collection<Film> getTrendingFilms(@RequestParam(name = "count", required = false, defaultValue = "10")
+                                             Integer count) {
+        return recommendationService.getTrendingFilms(count);
+    }
+
+    @GetMapping("/{id}/similar")
+    public Collection<Film> getSimilarFilms(@PathVariable Integer id,
+                                            @RequestParam(name = "count", required = false, defaultValue = "10")
+                                            Integer count) {
+        return recommendationService.getSimilarFilms(id, count);
     }
 
     @PostMapping
@@ -45,19 +124,34 @@ public class FilmController {
         return filmService.addFilm(film);
     }
 
+    @PostMapping("/batch")
+    public List<Integer> createBatch(@RequestBody List<@Valid Film> films) {
+        return filmService.addFilms(films);
+    }
+
     @PutMapping
-    public Film update(@Valid @RequestBody Film film) {
+    public ResponseEntity<Film> update(@Valid @RequestBody Film film,
+                                       @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("controller update " + film.toString());
-        return filmService.updateFilm(film);
+        Film updated = filmService.updateFilm(film, ifMatch);
+        return ResponseEntity.ok().eTag(updated.getVersion().toETag()).body(updated);
     }
 
     @PutMapping("/{id}/like/{userId}")
-    public void like(@PathVariable Integer id, @PathVariable Integer userId) {
-        filmService.like(id, userId);
+    public ChangeResult like(@PathVariable Integer id, @PathVariable Integer userId) {
+        return new ChangeResult(filmService.like(id, userId));
     }
 
     @DeleteMapping("/{id}/like/{userId}")
-    public void unLike(@PathVariable Integer id, @PathVariable Integer userId) {
-        filmService.unLike(id, userId);
+    public ChangeResult unLike(@PathVariable Integer id, @PathVariable Integer userId) {
+        return new ChangeResult(filmService.unLike(id, userId));
+    }
+
+    private ResponseEntity<Collection<Film>> toResponse(CursorPage<Film> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
     }
 }
@@ -2,29 +2,45 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.storage.cache.ResponseCaches;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
 
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/genres")
 @Slf4j
 @RequiredArgsConstructor
 public class GenreController {
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(1, TimeUnit.DAYS).cachePublic();
+
     private final GenreService genreService;
+    private final ResponseCaches responseCaches;
+    private final ReferenceDataCache referenceDataCache;
 
     @GetMapping
-    public Collection<Genre> findAll() {
-        return genreService.findAll();
+    public ResponseEntity<Collection<Genre>> findAll() {
+        return cacheable(responseCaches.genres().get("all", genreService::findAll));
     }
 
     @GetMapping("/{id}")
-    public Genre getById(@PathVariable Integer id) {
-        return genreService.getGenreById(id);
+    public ResponseEntity<Genre> getById(@PathVariable Integer id) {
+        return cacheable(genreService.getGenreById(id));
+    }
+
+    private <T> ResponseEntity<T> cacheable(T body) {
+        return ResponseEntity.ok()
+                .cacheControl(CACHE_CONTROL)
+                .eTag(referenceDataCache.digest())
+                .body(body);
     }
 }
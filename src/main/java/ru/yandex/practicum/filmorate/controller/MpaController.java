@@ -2,29 +2,45 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.service.MpaService;
+import ru.yandex.practicum.filmorate.storage.cache.ResponseCaches;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
 
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/mpa")
 @Slf4j
 @RequiredArgsConstructor
 public class MpaController {
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(1, TimeUnit.DAYS).cachePublic();
+
     private final MpaService mpaService;
+    private final ResponseCaches responseCaches;
+    private final ReferenceDataCache referenceDataCache;
 
     @GetMapping
-    public Collection<Mpa> findAll() {
-        return mpaService.findAll();
+    public ResponseEntity<Collection<Mpa>> findAll() {
+        return cacheable(responseCaches.mpa().get("all", mpaService::findAll));
     }
 
     @GetMapping("/{id}")
-    public Mpa getById(@PathVariable Integer id) {
-        return mpaService.getMpaById(id);
+    public ResponseEntity<Mpa> getById(@PathVariable Integer id) {
+        return cacheable(mpaService.getMpaById(id));
+    }
+
+    private <T> ResponseEntity<T> cacheable(T body) {
+        return ResponseEntity.ok()
+                .cacheControl(CACHE_CONTROL)
+                .eTag(referenceDataCache.digest())
+                .body(body);
     }
 }
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.CoalescingStats;
+import ru.yandex.practicum.filmorate.model.ResponseCacheStats;
+import ru.yandex.practicum.filmorate.service.RequestCoalescer;
+import ru.yandex.practicum.filmorate.storage.cache.ResponseCaches;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/stats")
+@RequiredArgsConstructor
+public class StatsController {
+
+    private final RequestCoalescer requestCoalescer;
+    private final ResponseCaches responseCaches;
+
+    @GetMapping("/coalescing")
+    public CoalescingStats getCoalescingStats() {
+        return requestCoalescer.stats();
+    }
+
+    @GetMapping("/response-cache")
+    public List<ResponseCacheStats> getResponseCacheStats() {
+        return responseCaches.stats();
+    }
+}
@@ -3,18 +3,32 @@ package ru.yandex.practicum.filmorate.controller;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.ChangeResult;
+import ru.yandex.practicum.filmorate.model.CursorPage;
+import ru.yandex.practicum.filmorate.model.EntityVersion;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.service.SearchService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.Collection;
+import java.util.List;
 
 @RestController
 @RequestMapping("/users")
@@ -23,15 +37,39 @@ import java.util.Collection;
 public class UserController {
 
     private final UserService userService;
+    private final RecommendationService recommendationService;
+    private final SearchService searchService;
 
     @GetMapping
-    public Collection<User> findAll() {
-        return userService.findAll();
+    public ResponseEntity<Collection<User>> findAll(@RequestParam(name = "after", required = false) String after,
+                                                    @RequestParam(name = "limit", required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(userService.findAll());
+        }
+        CursorPage<User> page = userService.findPage(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+
+    @GetMapping("/autocomplete")
+    public List<Suggestion> autocomplete(@RequestParam(name = "prefix", required = false) String prefix,
+                                         @RequestParam(name = "count", required = false, defaultValue = "10")
+                                         Integer count) {
+        return searchService.autocompleteUsers(prefix, count);
     }
 
     @GetMapping("/{id}")
-    public User getById(@PathVariable Integer id) {
-        return userService.getUserOrThrow(id);
+    public User getById(@PathVariable Integer id, WebRequest request) {
+        // ETag берётся из той же строки, что и тело: кэш не отдаст новый ETag со старым телом
+        User user = userService.getUserOrThrow(id);
+        EntityVersion version = user.getVersion();
+        if (request.checkNotModified(version.toETag(), version.getUpdatedAt().toEpochMilli())) {
+            return null;
+        }
+        return user;
     }
 
     @GetMapping("/{id}/friends")
@@ -39,19 +77,40 @@ public class UserController {
         return userService.getFriends(id);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public Collection<User> getFriendSuggestions(@PathVariable Integer id,
+                                                 @RequestParam(name = "count", required = false, defaultValue = "10")
+                                                 Integer count) {
+        return userService.getFriendSuggestions(id, count);
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
     public Collection<User> getCommonFriends(@PathVariable Integer id, @PathVariable Integer otherId) {
         return userService.getCommonFriends(id, otherId);
     }
 
+    @GetMapping("/{id}/recommendations")
+    public Collection<Film> getRecommendations(@PathVariable Integer id,
+                                               @RequestParam(name = "count", required = false, defaultValue = "10")
+                                               Integer count) {
+        return recommendationService.getRecommendations(id, count);
+    }
+
     @PostMapping
     public User create(@Valid @RequestBody User user) {
         return userService.addUser(user);
     }
 
+    @PostMapping("/batch")
+    public List<BatchItemResult> createBatch(@RequestBody List<@Valid User> users) {
+        return userService.addUsers(users);
+    }
+
     @PutMapping
-    public User update(@Valid @RequestBody User newUser) {
-        return userService.updateUser(newUser);
+    public ResponseEntity<User> update(@Valid @RequestBody User newUser,
+                                       @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        User updated = userService.updateUser(newUser, ifMatch);
+        return ResponseEntity.ok().eTag(updated.getVersion().toETag()).body(updated);
     }
 
     @PutMapping("/{id}/friends/{friendId}")
@@ -60,8 +119,8 @@ public class UserController {
     }
 
     @DeleteMapping("/{id}/friends/{friendId}")
-    public void deleteFriend(@PathVariable Integer id, @PathVariable Integer friendId) {
-        userService.deleteFriend(id, friendId);
+    public ChangeResult deleteFriend(@PathVariable Integer id, @PathVariable Integer friendId) {
+        return new ChangeResult(userService.deleteFriend(id, friendId));
     }
 
 }
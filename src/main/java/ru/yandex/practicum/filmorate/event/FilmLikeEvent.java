@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.event;
+
+import lombok.Value;
+
+@Value
+public class FilmLikeEvent {
+    Integer filmId;
+    Integer userId;
+    boolean liked;
+}
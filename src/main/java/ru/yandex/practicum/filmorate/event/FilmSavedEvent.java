@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.event;
+
+import lombok.Value;
+import ru.yandex.practicum.filmorate.model.Film;
+
+@Value
+public class FilmSavedEvent {
+    Film film;
+}
@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.event;
+
+import lombok.Value;
+
+@Value
+public class FriendshipEvent {
+    Integer userId;
+    Integer friendId;
+    boolean added;
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.event;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class UserDeletedEvent {
+    Integer userId;
+    // фильмы, лайки которых удалены каскадом вместе с пользователем
+    List<Integer> likedFilmIds;
+}
@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.event;
+
+import lombok.Value;
+import ru.yandex.practicum.filmorate.model.User;
+
+@Value
+public class UserSavedEvent {
+    User user;
+}
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.exception;
+
+public class VersionConflictException extends RuntimeException {
+
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
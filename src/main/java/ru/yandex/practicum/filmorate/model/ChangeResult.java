@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// ответ идемпотентных операций: false, если лайк или дружба уже были в нужном состоянии
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeResult {
+    private Boolean changed;
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EntityVersion {
+    private Long version;
+    private Long contentVersion;
+    private Instant updatedAt;
+
+    /**
+     * version растёт при любом изменении представления, включая лайки и дружбу, а contentVersion — только
+     * при PUT. ETag вида "contentVersion-version" меняется вместе с представлением, а If-Match сверяет
+     * только contentVersion, поэтому чужой лайк между GET и PUT не приводит к 412.
+     */
+    public String toETag() {
+        return "\"" + contentVersion + "-" + version + "\"";
+    }
+}
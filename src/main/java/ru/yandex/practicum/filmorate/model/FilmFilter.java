@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilmFilter {
+    private Integer genreId;
+    private Integer mpaId;
+    private Integer yearFrom;
+    private Integer yearTo;
+    private Integer maxDuration;
+
+    public boolean isEmpty() {
+        return genreId == null && mpaId == null && yearFrom == null && yearTo == null && maxDuration == null;
+    }
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResponseCacheStats {
+    private String name;
+    private Integer size;
+    private Long hits;
+    private Long staleHits;
+    private Long misses;
+    private Long refreshes;
+    private Long refreshFailures;
+    private Long rejectedRefreshes;
+}
@@ -6,17 +6,19 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
-import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -24,6 +26,8 @@ import java.util.Set;
 @RequiredArgsConstructor
 @Slf4j
 public class FilmService {
+    private static final int BATCH_CHUNK_SIZE = 500;
+
     @Qualifier("FilmDbStorage")
     private final FilmStorage filmStorage;
     @Qualifier("UserDbStorage")
@@ -31,6 +35,7 @@ public class FilmService {
 
     private final MpaStorage mpaStorage;
     private final GenreStorage genreStorage;
+    private final RequestCoalescer requestCoalescer;
     private final LocalDate firstFilmDate = LocalDate.of(1895, 12, 28);
 
     public Collection<Film> findAll() {
@@ -39,9 +44,17 @@ public class FilmService {
         return films;
     }
 
+    public CursorPage<Film> findPage(String after, Integer limit) {
+        int afterId = PageCursor.decode(after);
+        int pageSize = PageCursor.resolveLimit(limit);
+        List<Film> films = new ArrayList<>(filmStorage.findPage(afterId, pageSize));
+        log.info("Отдали страницу фильмов после id = {}, количество фильмов: {}", afterId, films.size());
+        return PageCursor.toPage(films, pageSize, Film::getId);
+    }
+
     public Film getFilmById(Integer filmId) {
         log.info("getFilmById = {}", filmId);
-        Optional<Film> filmOpt = filmStorage.getFilmById(filmId);
+        Optional<Film> filmOpt = requestCoalescer.execute("film:" + filmId, () -> filmStorage.getFilmById(filmId));
         if (filmOpt.isEmpty()) {
             throw new NotFoundException("Фильм с id = " + filmId + " не найден");
         }
@@ -54,46 +67,75 @@ public class FilmService {
         return filmStorage.addFilm(film);
     }
 
+    public List<Integer> addFilms(List<Film> films) {
+        log.info("пакетное создание фильмов, количество: {}", films.size());
+        films.forEach(this::checkFilmOrThrow);
+        List<Integer> ids = new ArrayList<>(films.size());
+        for (int from = 0; from < films.size(); from += BATCH_CHUNK_SIZE) {
+            List<Film> chunk = new ArrayList<>(films.subList(from, Math.min(from + BATCH_CHUNK_SIZE, films.size())));
+            filmStorage.addFilms(chunk).forEach(film -> ids.add(film.getId()));
+        }
+        return ids;
+    }
+
     public Film updateFilm(Film film) {
+        return updateFilm(film, null);
+    }
+
+    public Film updateFilm(Film film, String ifMatch) {
         log.info("изменение существующего фильма");
         checkFilmOrThrow(film);
         if (film.getId() == null) {
             throw new ValidationException("Id должен быть указан");
         }
-        return filmStorage.updateFilm(film);
+        return filmStorage.updateFilm(film, IfMatchHeader.expectedVersion(ifMatch));
     }
 
-    public void like(Integer filmId, Integer userId) {
+    public boolean like(Integer filmId, Integer userId) {
         log.info("фильму {} ставит лайк юзер {}", filmId, userId);
-        Optional<User> userOpt = userStorage.getUserById(userId);
-        if (userOpt.isEmpty()) {
-            throw new NotFoundException("Пользователь с id = " + userId + " не найден");
-        }
-        Optional<Film> filmOpt = filmStorage.getFilmById(filmId);
-        if (filmOpt.isEmpty()) {
-            throw new NotFoundException("Фильм с id = " + filmId + " не найден");
+        checkUserExistsOrThrow(userId);
+        checkFilmExistsOrThrow(filmId);
+        boolean changed = filmStorage.like(filmId, userId);
+        if (!changed) {
+            log.info("юзер {} уже лайкнул фильм {}", userId, filmId);
         }
-        filmStorage.like(filmId, userId);
+        return changed;
     }
 
-    public void unLike(Integer filmId, Integer userId) {
+    public boolean unLike(Integer filmId, Integer userId) {
         log.info("фильму {} делает анлайк юзер {}", filmId, userId);
-        Optional<User> user = userStorage.getUserById(userId);
-        if (user.isEmpty()) {
-            throw new NotFoundException("Пользователь с id = " + userId + " не найден");
+        checkUserExistsOrThrow(userId);
+        checkFilmExistsOrThrow(filmId);
+        boolean changed = filmStorage.unLike(filmId, userId);
+        if (!changed) {
+            log.info("у фильма {} нет лайка от юзера {}", filmId, userId);
         }
-        if (filmStorage.getFilmById(filmId).isEmpty()) {
-            throw new NotFoundException("Фильм с id = " + filmId + " не найден");
-        }
-        filmStorage.unLike(filmId, userId);
+        return changed;
     }
 
     public Collection<Film> getMostPopulars(Integer amount) {
-        log.info("получение {} популярных фильмов", amount);
+        return getMostPopulars(amount, null, null, null);
+    }
+
+    public Collection<Film> getMostPopulars(Integer amount, Integer genreId, Integer mpaId, Integer year) {
+        log.info("получение {} популярных фильмов, жанр: {}, рейтинг: {}, год: {}", amount, genreId, mpaId, year);
         if (amount <= 0) {
             throw new ValidationException("Количество фильмов должно быть больше 0");
         }
-        return filmStorage.getMostPopulars(amount);
+        String key = "popular:" + amount + ":" + genreId + ":" + mpaId + ":" + year;
+        return requestCoalescer.execute(key, () -> filmStorage.getMostPopulars(amount, genreId, mpaId, year));
+    }
+
+    private void checkUserExistsOrThrow(Integer userId) {
+        if (!userStorage.existsById(userId)) {
+            throw new NotFoundException("Пользователь с id = " + userId + " не найден");
+        }
+    }
+
+    private void checkFilmExistsOrThrow(Integer filmId) {
+        if (!filmStorage.existsById(filmId)) {
+            throw new NotFoundException("Фильм с id = " + filmId + " не найден");
+        }
     }
 
     private void checkFilmOrThrow(Film film) {
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+final class IfMatchHeader {
+    private static final String ANY = "*";
+
+    private IfMatchHeader() {
+    }
+
+    /**
+     * Версия содержимого из If-Match вида "5-12" (ETag из GET) или "5"; null, если заголовка нет или в нём *,
+     * то есть подойдёт любая версия.
+     */
+    static Long expectedVersion(String header) {
+        if (header == null || header.isBlank() || ANY.equals(header.trim())) {
+            return null;
+        }
+        String tag = header.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new ValidationException("Некорректный заголовок If-Match: " + header);
+        }
+        try {
+            String versions = tag.substring(1, tag.length() - 1);
+            int separator = versions.indexOf('-');
+            return Long.parseLong(separator < 0 ? versions : versions.substring(0, separator));
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Некорректный заголовок If-Match: " + header);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmRecommendationIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmTrendingIndex;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecommendationService {
+    @Qualifier("FilmDbStorage")
+    private final FilmStorage filmStorage;
+    @Qualifier("UserDbStorage")
+    private final UserStorage userStorage;
+
+    private final FilmRecommendationIndex recommendationIndex;
+    private final FilmSimilarityIndex similarityIndex;
+    private final FilmTrendingIndex trendingIndex;
+
+    public Collection<Film> getRecommendations(Integer userId, Integer count) {
+        log.info("подбираем юзеру {} рекомендации, количество: {}", userId, count);
+        if (count <= 0) {
+            throw new ValidationException("Количество фильмов должно быть больше 0");
+        }
+        if (!userStorage.existsById(userId)) {
+            throw new NotFoundException("Пользователь с id = " + userId + " не найден");
+        }
+        int[] filmIds = recommendationIndex.recommend(userId, count);
+        return filmStorage.getFilmsByIds(Arrays.stream(filmIds).boxed().toList());
+    }
+
+    public Collection<Film> getSimilarFilms(Integer filmId, Integer count) {
+        log.info("подбираем фильмы, похожие на фильм {}, количество: {}", filmId, count);
+        if (count <= 0) {
+            throw new ValidationException("Количество фильмов должно быть больше 0");
+        }
+        if (!filmStorage.existsById(filmId)) {
+            throw new NotFoundException("Фильм с id = " + filmId + " не найден");
+        }
+        return filmStorage.getFilmsByIds(similarityIndex.similar(filmId, count));
+    }
+
+    public Collection<Film> getTrendingFilms(Integer count) {
+        log.info("получение {} трендовых фильмов", count);
+        if (count <= 0) {
+            throw new ValidationException("Количество фильмов должно быть больше 0");
+        }
+        return filmStorage.getFilmsByIds(trendingIndex.top(count));
+    }
+}
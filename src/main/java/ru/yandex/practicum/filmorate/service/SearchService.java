@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.CursorPage;
+import ru.yandex.practicum.filmorate.model.FacetCount;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFacets;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.storage.film.FilmAutocompleteIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmBitmapIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmFilterIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.storage.search.PrefixTrie;
+import ru.yandex.practicum.filmorate.storage.user.UserAutocompleteIndex;
+
+import java.util.Collection;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SearchService {
+    @Qualifier("FilmDbStorage")
+    private final FilmStorage filmStorage;
+
+    private final FilmSearchIndex filmSearchIndex;
+    private final FilmAutocompleteIndex filmAutocompleteIndex;
+    private final FilmFilterIndex filmFilterIndex;
+    private final ReferenceDataCache referenceDataCache;
+    private final UserAutocompleteIndex userAutocompleteIndex;
+
+    public Collection<Film> searchFilms(String query, Integer count) {
+        log.info("поиск фильмов по запросу \"{}\", количество: {}", query, count);
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Поисковый запрос не может быть пустым");
+        }
+        if (count <= 0) {
+            throw new ValidationException("Количество фильмов должно быть больше 0");
+        }
+        return filmStorage.getFilmsByIds(filmSearchIndex.search(query, count));
+    }
+
+    public CursorPage<Film> filterFilms(FilmFilter filter, String after, Integer limit) {
+        log.info("фильтрация фильмов: {}", filter);
+        checkFilterOrThrow(filter);
+        int afterId = PageCursor.decode(after);
+        int pageSize = PageCursor.resolveLimit(limit);
+        List<Integer> ids = filmFilterIndex.filter(filter, afterId, pageSize);
+        String nextCursor = ids.size() == pageSize ? PageCursor.encode(ids.get(ids.size() - 1)) : null;
+        return new CursorPage<>(filmStorage.getFilmsByIds(ids), nextCursor);
+    }
+
+    public FilmFacets getFacets(FilmFilter filter) {
+        log.info("считаем фасеты фильмов: {}", filter);
+        checkFilterOrThrow(filter);
+        FilmBitmapIndex.Facets facets = filmFilterIndex.facets(filter);
+        List<FacetCount> genres = referenceDataCache.getAllGenres().stream()
+                .map(genre -> new FacetCount(genre.getId(), genre.getName(),
+                        facets.genres().getOrDefault(genre.getId(), 0)))
+                .toList();
+        List<FacetCount> mpa = referenceDataCache.getAllMpa().stream()
+                .map(rating -> new FacetCount(rating.getId(), rating.getName(),
+                        facets.mpa().getOrDefault(rating.getId(), 0)))
+                .toList();
+        List<FacetCount> decades = facets.decades().entrySet().stream()
+                .map(decade -> new FacetCount(decade.getKey(), decade.getKey() + "-е", decade.getValue()))
+                .toList();
+        return new FilmFacets(facets.total(), genres, mpa, decades);
+    }
+
+    public List<Suggestion> autocompleteFilms(String prefix, Integer count) {
+        checkAutocompleteOrThrow(prefix, count);
+        return filmAutocompleteIndex.complete(prefix, Math.min(count, PrefixTrie.DEFAULT_CACHED_TOP));
+    }
+
+    public List<Suggestion> autocompleteUsers(String prefix, Integer count) {
+        checkAutocompleteOrThrow(prefix, count);
+        return userAutocompleteIndex.complete(prefix, Math.min(count, PrefixTrie.DEFAULT_CACHED_TOP));
+    }
+
+    private void checkFilterOrThrow(FilmFilter filter) {
+        if (filter.getYearFrom() != null && filter.getYearTo() != null && filter.getYearFrom() > filter.getYearTo()) {
+            throw new ValidationException("Начальный год не может быть больше конечного");
+        }
+        if (filter.getMaxDuration() != null && filter.getMaxDuration() <= 0) {
+            throw new ValidationException("Максимальная продолжительность должна быть больше 0");
+        }
+    }
+
+    private void checkAutocompleteOrThrow(String prefix, Integer count) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new ValidationException("Префикс не может быть пустым");
+        }
+        if (count <= 0) {
+            throw new ValidationException("Количество подсказок должно быть больше 0");
+        }
+    }
+}
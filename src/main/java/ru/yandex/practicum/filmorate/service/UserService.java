@@ -3,19 +3,28 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class UserService {
+    private static final int BATCH_CHUNK_SIZE = 500;
+
     @Qualifier("UserDbStorage")
     private final UserStorage userStorage;
 
@@ -25,48 +34,117 @@ public class UserService {
         return users;
     }
 
+    public CursorPage<User> findPage(String after, Integer limit) {
+        int afterId = PageCursor.decode(after);
+        int pageSize = PageCursor.resolveLimit(limit);
+        List<User> users = new ArrayList<>(userStorage.findPage(afterId, pageSize));
+        log.info("Отдали страницу пользователей после id = {}, количество пользователей: {}", afterId, users.size());
+        return PageCursor.toPage(users, pageSize, User::getId);
+    }
+
     public User addUser(User user) {
         log.info("создание нового юзера");
         return userStorage.addUser(user);
     }
 
+    public List<BatchItemResult> addUsers(List<User> users) {
+        log.info("пакетное создание юзеров, количество: {}", users.size());
+        List<BatchItemResult> results = new ArrayList<>(users.size());
+        for (int from = 0; from < users.size(); from += BATCH_CHUNK_SIZE) {
+            List<User> chunk = users.subList(from, Math.min(from + BATCH_CHUNK_SIZE, users.size()));
+            Map<Integer, String> rejected;
+            try {
+                rejected = userStorage.addUsers(chunk);
+            } catch (DuplicateKeyException e) {
+                log.info("конфликт уникальности при пакетной вставке, добавляем юзеров по одному");
+                rejected = addUsersOneByOne(chunk);
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                String error = rejected.get(i);
+                Integer id = error == null ? chunk.get(i).getId() : null;
+                results.add(new BatchItemResult(from + i, id, error));
+            }
+        }
+        return results;
+    }
+
     public User updateUser(User newUser) {
+        return updateUser(newUser, null);
+    }
+
+    public User updateUser(User newUser, String ifMatch) {
         if (newUser.getId() == null) {
             log.error("Не задан id");
             throw new ValidationException("Id должен быть указан");
         }
-        getUserOrThrow(newUser.getId());
-        return userStorage.updateUser(newUser);
+        return userStorage.updateUser(newUser, IfMatchHeader.expectedVersion(ifMatch));
     }
 
     public User addFriend(Integer id, Integer friendId) {
         log.info("юзеру {} добавляем френда {}", id, friendId);
-        getUserOrThrow(id);
-        getUserOrThrow(friendId);
-        User user = userStorage.addFriend(id, friendId);
-        return user;
+        checkUserExistsOrThrow(id);
+        checkUserExistsOrThrow(friendId);
+        if (!userStorage.addFriend(id, friendId)) {
+            log.info("юзер {} уже в друзьях у юзера {}", friendId, id);
+        }
+        return getUserOrThrow(id);
     }
 
-    public void deleteFriend(Integer id, Integer friendId) {
+    public boolean deleteFriend(Integer id, Integer friendId) {
         log.info("у юзера {} удаляем френда {}", id, friendId);
-        getUserOrThrow(id);
-        getUserOrThrow(friendId);
-        userStorage.deleteFriend(id, friendId);
+        checkUserExistsOrThrow(id);
+        checkUserExistsOrThrow(friendId);
+        boolean changed = userStorage.deleteFriend(id, friendId);
+        if (!changed) {
+            log.info("юзера {} нет в друзьях у юзера {}", friendId, id);
+        }
+        return changed;
     }
 
     public Collection<User> getFriends(Integer id) {
         log.info("получаем друзей юзера {}", id);
-        getUserOrThrow(id);
+        checkUserExistsOrThrow(id);
         return userStorage.getFriends(id);
     }
 
     public Collection<User> getCommonFriends(Integer id, Integer friendId) {
         log.info("получаем общих друзей юзера {} и френда {}", id, friendId);
-        getUserOrThrow(id);
-        getUserOrThrow(friendId);
+        checkUserExistsOrThrow(id);
+        checkUserExistsOrThrow(friendId);
         return userStorage.getCommonFriends(id, friendId);
     }
 
+    public Collection<User> getFriendSuggestions(Integer id, Integer limit) {
+        log.info("подбираем юзеру {} возможных друзей, количество: {}", id, limit);
+        if (limit <= 0) {
+            throw new ValidationException("Количество юзеров должно быть больше 0");
+        }
+        checkUserExistsOrThrow(id);
+        return userStorage.getFriendSuggestions(id, limit);
+    }
+
+    private Map<Integer, String> addUsersOneByOne(List<User> users) {
+        Map<Integer, String> rejected = new HashMap<>();
+        for (int i = 0; i < users.size(); i++) {
+            try {
+                String error = userStorage.addUsers(List.of(users.get(i))).get(0);
+                if (error != null) {
+                    rejected.put(i, error);
+                }
+            } catch (DuplicateKeyException e) {
+                rejected.put(i, "Логин или email уже используется");
+            }
+        }
+        return rejected;
+    }
+
+    private void checkUserExistsOrThrow(Integer id) {
+        if (!userStorage.existsById(id)) {
+            log.info("Пользователь с id = {} не найден", id);
+            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+        }
+    }
+
     public User getUserOrThrow(Integer id) {
         Optional<User> user = userStorage.getUserById(id);
         if (user.isEmpty()) {
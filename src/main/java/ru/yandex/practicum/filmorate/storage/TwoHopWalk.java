@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * Ограниченный обход в два шага по отсортированным спискам смежности.
+ * Общая часть подсказок друзей и рекомендаций фильмов: соседи не хранятся заранее,
+ * а собираются на каждый запрос, поэтому объём работы ограничен fanOut и maxVisited.
+ */
+public final class TwoHopWalk {
+
+    private TwoHopWalk() {
+    }
+
+    @FunctionalInterface
+    public interface PathCounter {
+        void accept(int id, int paths);
+    }
+
+    /**
+     * Проходит от вершин firstHop к их соседям: с каждой вершины берётся не больше fanOut соседей,
+     * всего просматривается не больше maxVisited рёбер. Для каждой найденной вершины, кроме исключённых,
+     * по возрастанию id передаёт в counter число путей до неё.
+     */
+    public static void countPaths(int[] firstHop, IntFunction<int[]> neighbours, IntPredicate excluded,
+                                  int fanOut, int maxVisited, PathCounter counter) {
+        int[] reached = new int[Math.min(maxVisited, 64)];
+        int size = 0;
+        traversal:
+        for (int via : SortedIntArrays.sample(firstHop, fanOut)) {
+            for (int id : SortedIntArrays.sample(neighbours.apply(via), fanOut)) {
+                if (size == maxVisited) {
+                    break traversal;
+                }
+                if (excluded.test(id)) {
+                    continue;
+                }
+                if (size == reached.length) {
+                    reached = Arrays.copyOf(reached, Math.min(maxVisited, size * 2));
+                }
+                reached[size++] = id;
+            }
+        }
+        Arrays.sort(reached, 0, size);
+
+        int i = 0;
+        while (i < size) {
+            int id = reached[i];
+            int paths = 0;
+            while (i < size && reached[i] == id) {
+                paths++;
+                i++;
+            }
+            counter.accept(id, paths);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.event.FilmLikeEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.model.CacheStats;
+import ru.yandex.practicum.filmorate.model.EntityVersion;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Кэширующая обёртка над FilmDbStorage, включается профилем cache. В кэше лежат копии фильмов,
+ * и наружу тоже отдаются копии, поэтому изменение likes или genres у полученного фильма не портит кэш.
+ */
+@Slf4j
+@Repository("CachingFilmStorage")
+@Primary
+@Profile("cache")
+public class CachingFilmStorage implements FilmStorage {
+    private final FilmDbStorage delegate;
+    private final EntityCache<Integer, Film> cache;
+
+    @Autowired
+    public CachingFilmStorage(FilmDbStorage delegate,
+                              @Value("${filmorate.cache.films.max-size:" + EntityCache.DEFAULT_MAX_SIZE + "}")
+                              int maxSize,
+                              @Value("${filmorate.cache.films.ttl-ms:" + EntityCache.DEFAULT_TTL_MS + "}")
+                              long ttlMs) {
+        this.delegate = delegate;
+        this.cache = new EntityCache<>("films", maxSize, ttlMs);
+        log.info("Кэш фильмов включён, размер: {}, время жизни: {} мс", maxSize, ttlMs);
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        return delegate.addFilm(film);
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> films) {
+        return delegate.addFilms(films);
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        return updateFilm(film, null);
+    }
+
+    @Override
+    public Film updateFilm(Film film, Long expectedVersion) {
+        try {
+            return delegate.updateFilm(film, expectedVersion);
+        } finally {
+            cache.invalidate(film.getId());
+        }
+    }
+
+    @Override
+    public void deleteFilm(Integer id) {
+        delegate.deleteFilm(id);
+        cache.invalidate(id);
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Collection<Film> findPage(Integer afterId, Integer limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Optional<EntityVersion> getFilmVersion(Integer id) {
+        return delegate.getFilmVersion(id);
+    }
+
+    @Override
+    public Optional<Film> getFilmById(Integer id) {
+        Film cached = cache.get(id);
+        if (cached != null) {
+            return Optional.of(copyOf(cached));
+        }
+        long generation = cache.generation();
+        Optional<Film> film = delegate.getFilmById(id);
+        film.ifPresent(loaded -> cache.put(id, copyOf(loaded), generation));
+        return film;
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> ids) {
+        Map<Integer, Film> filmsById = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : ids) {
+            Film cached = cache.get(id);
+            if (cached != null) {
+                filmsById.put(id, copyOf(cached));
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long generation = cache.generation();
+            for (Film film : delegate.getFilmsByIds(missing)) {
+                cache.put(film.getId(), copyOf(film), generation);
+                filmsById.put(film.getId(), film);
+            }
+        }
+        List<Film> films = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Film film = filmsById.get(id);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return films;
+    }
+
+    @Override
+    public boolean existsById(Integer id) {
+        return cache.contains(id) || delegate.existsById(id);
+    }
+
+    @Override
+    public boolean like(Integer filmId, Integer userId) {
+        return delegate.like(filmId, userId);
+    }
+
+    @Override
+    public boolean unLike(Integer filmId, Integer userId) {
+        return delegate.unLike(filmId, userId);
+    }
+
+    @Override
+    public Collection<Film> getMostPopulars(Integer amount) {
+        return delegate.getMostPopulars(amount);
+    }
+
+    @Override
+    public Collection<Film> getMostPopulars(Integer amount, Integer genreId, Integer mpaId, Integer year) {
+        return delegate.getMostPopulars(amount, genreId, mpaId, year);
+    }
+
+    public CacheStats cacheStats() {
+        return cache.stats();
+    }
+
+    // фильм сбрасывается только по событию после коммита: и при прямой, и при отложенной записи лайка событие
+    // приходит ровно один раз и уже после того, как лайк виден в базе
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFilmLike(FilmLikeEvent event) {
+        cache.invalidate(event.getFilmId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserDeleted(UserDeletedEvent event) {
+        cache.invalidateAll();
+    }
+
+    private static Film copyOf(Film film) {
+        Set<Genre> genres = null;
+        if (film.getGenres() != null) {
+            genres = new LinkedHashSet<>();
+            for (Genre genre : film.getGenres()) {
+                genres.add(new Genre(genre.getId(), genre.getName()));
+            }
+        }
+        Mpa mpa = film.getMpa() == null ? null : new Mpa(film.getMpa().getId(), film.getMpa().getName());
+        return Film.builder()
+                .id(film.getId())
+                .name(film.getName())
+                .description(film.getDescription())
+                .releaseDate(film.getReleaseDate())
+                .duration(film.getDuration())
+                .likes(film.getLikes() == null ? null : new HashSet<>(film.getLikes()))
+                .genres(genres)
+                .mpa(mpa)
+                .version(film.getVersion())
+                .build();
+    }
+}
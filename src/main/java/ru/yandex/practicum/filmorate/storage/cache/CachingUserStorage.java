@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.CacheStats;
+import ru.yandex.practicum.filmorate.model.EntityVersion;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Кэширующая обёртка над UserDbStorage, включается профилем cache. В кэше лежат копии юзеров,
+ * и наружу тоже отдаются копии, поэтому изменение friends у полученного юзера не портит кэш.
+ */
+@Slf4j
+@Repository("CachingUserStorage")
+@Primary
+@Profile("cache")
+public class CachingUserStorage implements UserStorage {
+    private final UserDbStorage delegate;
+    private final EntityCache<Integer, User> cache;
+
+    @Autowired
+    public CachingUserStorage(UserDbStorage delegate,
+                              @Value("${filmorate.cache.users.max-size:" + EntityCache.DEFAULT_MAX_SIZE + "}")
+                              int maxSize,
+                              @Value("${filmorate.cache.users.ttl-ms:" + EntityCache.DEFAULT_TTL_MS + "}")
+                              long ttlMs) {
+        this.delegate = delegate;
+        this.cache = new EntityCache<>("users", maxSize, ttlMs);
+        log.info("Кэш юзеров включён, размер: {}, время жизни: {} мс", maxSize, ttlMs);
+    }
+
+    @Override
+    public User addUser(User user) {
+        return delegate.addUser(user);
+    }
+
+    @Override
+    public Map<Integer, String> addUsers(List<User> users) {
+        return delegate.addUsers(users);
+    }
+
+    @Override
+    public User updateUser(User user) {
+        return updateUser(user, null);
+    }
+
+    @Override
+    public User updateUser(User user, Long expectedVersion) {
+        try {
+            return delegate.updateUser(user, expectedVersion);
+        } finally {
+            cache.invalidate(user.getId());
+        }
+    }
+
+    @Override
+    public void deleteUser(Integer id) {
+        delegate.deleteUser(id);
+        cache.invalidateAll();
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Collection<User> findPage(Integer afterId, Integer limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Optional<EntityVersion> getUserVersion(Integer id) {
+        return delegate.getUserVersion(id);
+    }
+
+    @Override
+    public Optional<User> getUserById(Integer id) {
+        User cached = cache.get(id);
+        if (cached != null) {
+            return Optional.of(copyOf(cached));
+        }
+        long generation = cache.generation();
+        Optional<User> user = delegate.getUserById(id);
+        user.ifPresent(loaded -> cache.put(id, copyOf(loaded), generation));
+        return user;
+    }
+
+    @Override
+    public boolean existsById(Integer id) {
+        return cache.contains(id) || delegate.existsById(id);
+    }
+
+    @Override
+    public boolean addFriend(Integer id, Integer friendId) {
+        try {
+            return delegate.addFriend(id, friendId);
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    @Override
+    public boolean deleteFriend(Integer id, Integer friendId) {
+        try {
+            return delegate.deleteFriend(id, friendId);
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    @Override
+    public Collection<User> getFriends(Integer id) {
+        return delegate.getFriends(id);
+    }
+
+    @Override
+    public Collection<User> getCommonFriends(Integer id, Integer friendId) {
+        return delegate.getCommonFriends(id, friendId);
+    }
+
+    @Override
+    public Collection<User> getFriendSuggestions(Integer id, Integer limit) {
+        return delegate.getFriendSuggestions(id, limit);
+    }
+
+    public CacheStats cacheStats() {
+        return cache.stats();
+    }
+
+    private static User copyOf(User user) {
+        return User.builder()
+                .id(user.getId())
+                .email(user.getEmail())
+                .login(user.getLogin())
+                .name(user.getName())
+                .birthday(user.getBirthday())
+                .friends(user.getFriends() == null ? null : new HashSet<>(user.getFriends()))
+                .version(user.getVersion())
+                .build();
+    }
+}
@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import ru.yandex.practicum.filmorate.model.CacheStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограниченный LRU-кэш с временем жизни записей и счётчиками попаданий, промахов и вытеснений.
+ * Каждая инвалидация увеличивает поколение кэша и запоминает его для своего ключа: put отклоняет значение,
+ * загрузка которого началась до последней инвалидации этого ключа, поэтому медленная загрузка не вернёт в кэш
+ * старые данные, а инвалидация одного ключа не мешает кэшировать остальные. Отметки инвалидаций хранятся
+ * для последних maxSize ключей; при вытеснении отметки её поколение становится общей нижней границей.
+ */
+public class EntityCache<K, V> {
+    public static final int DEFAULT_MAX_SIZE = 10000;
+    public static final long DEFAULT_TTL_MS = 60000;
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlMs;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final LinkedHashMap<K, Long> invalidations;
+    private long generation;
+    private long floor;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public EntityCache(String name, int maxSize, long ttlMs) {
+        this(name, maxSize, ttlMs, System::currentTimeMillis);
+    }
+
+    public EntityCache(String name, int maxSize, long ttlMs, LongSupplier clock) {
+        if (maxSize <= 0 || ttlMs <= 0) {
+            throw new IllegalArgumentException("Размер кэша и время жизни записей должны быть больше 0");
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlMs = ttlMs;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > EntityCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.invalidations = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Long> eldest) {
+                if (size() > EntityCache.this.maxSize) {
+                    floor = Math.max(floor, eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.expiresAt() <= clock.getAsLong()) {
+            entries.remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value();
+    }
+
+    public synchronized boolean contains(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry != null && entry.expiresAt() > clock.getAsLong();
+    }
+
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized void put(K key, V value, long loadedAt) {
+        if (loadedAt >= floor && loadedAt >= invalidations.getOrDefault(key, 0L)) {
+            entries.put(key, new Entry<>(value, clock.getAsLong() + ttlMs));
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        entries.remove(key);
+        invalidations.remove(key);
+        invalidations.put(key, generation);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        floor = generation;
+        entries.clear();
+        invalidations.clear();
+    }
+
+    public synchronized CacheStats stats() {
+        long requests = hits + misses;
+        return new CacheStats(name, entries.size(), maxSize, hits, misses, evictions, expirations,
+                requests == 0 ? 0 : (double) hits / requests);
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
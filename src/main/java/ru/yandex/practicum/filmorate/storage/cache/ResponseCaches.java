@@ -0,0 +1,137 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.event.FilmDeletedEvent;
+import ru.yandex.practicum.filmorate.event.FilmLikeEvent;
+import ru.yandex.practicum.filmorate.event.FilmSavedEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.ResponseCacheStats;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Кэши ответов списочных эндпоинтов и общий ограниченный пул для их фонового обновления.
+ * Сохранение и удаление фильмов сбрасывают кэши фильмов и популярных, чтобы новый или удалённый фильм был виден
+ * сразу; лайк и удаление юзера только помечают их устаревшими, и списки обновляются в фоне. Справочники живут по TTL.
+ */
+@Slf4j
+@Component
+public class ResponseCaches {
+    public static final int DEFAULT_MAX_SIZE = 1000;
+    public static final int DEFAULT_REFRESH_THREADS = 2;
+    public static final int DEFAULT_REFRESH_QUEUE = 100;
+    public static final long DEFAULT_FILMS_SOFT_TTL_MS = 1000;
+    public static final long DEFAULT_FILMS_HARD_TTL_MS = 30000;
+    public static final long DEFAULT_REFERENCE_SOFT_TTL_MS = 60000;
+    public static final long DEFAULT_REFERENCE_HARD_TTL_MS = 3600000;
+
+    private final ThreadPoolExecutor refresher;
+    private final StaleWhileRevalidateCache<String, ResponseEntity<Collection<Film>>> films;
+    private final StaleWhileRevalidateCache<String, Collection<Film>> popular;
+    private final StaleWhileRevalidateCache<String, Collection<Genre>> genres;
+    private final StaleWhileRevalidateCache<String, Collection<Mpa>> mpa;
+
+    @Autowired
+    public ResponseCaches(@Value("${filmorate.response-cache.max-size:" + DEFAULT_MAX_SIZE + "}")
+                          int maxSize,
+                          @Value("${filmorate.response-cache.refresh-threads:" + DEFAULT_REFRESH_THREADS + "}")
+                          int refreshThreads,
+                          @Value("${filmorate.response-cache.refresh-queue:" + DEFAULT_REFRESH_QUEUE + "}")
+                          int refreshQueue,
+                          @Value("${filmorate.response-cache.films.soft-ttl-ms:" + DEFAULT_FILMS_SOFT_TTL_MS + "}")
+                          long filmsSoftTtlMs,
+                          @Value("${filmorate.response-cache.films.hard-ttl-ms:" + DEFAULT_FILMS_HARD_TTL_MS + "}")
+                          long filmsHardTtlMs,
+                          @Value("${filmorate.response-cache.popular.soft-ttl-ms:" + DEFAULT_FILMS_SOFT_TTL_MS + "}")
+                          long popularSoftTtlMs,
+                          @Value("${filmorate.response-cache.popular.hard-ttl-ms:" + DEFAULT_FILMS_HARD_TTL_MS + "}")
+                          long popularHardTtlMs,
+                          @Value("${filmorate.response-cache.genres.soft-ttl-ms:" + DEFAULT_REFERENCE_SOFT_TTL_MS + "}")
+                          long genresSoftTtlMs,
+                          @Value("${filmorate.response-cache.genres.hard-ttl-ms:" + DEFAULT_REFERENCE_HARD_TTL_MS + "}")
+                          long genresHardTtlMs,
+                          @Value("${filmorate.response-cache.mpa.soft-ttl-ms:" + DEFAULT_REFERENCE_SOFT_TTL_MS + "}")
+                          long mpaSoftTtlMs,
+                          @Value("${filmorate.response-cache.mpa.hard-ttl-ms:" + DEFAULT_REFERENCE_HARD_TTL_MS + "}")
+                          long mpaHardTtlMs) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.refresher = new ThreadPoolExecutor(refreshThreads, refreshThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(refreshQueue), runnable -> {
+                    Thread thread = new Thread(runnable, "response-cache-refresh-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.films = new StaleWhileRevalidateCache<>("films", maxSize, filmsSoftTtlMs, filmsHardTtlMs, refresher);
+        this.popular = new StaleWhileRevalidateCache<>("popular", maxSize, popularSoftTtlMs, popularHardTtlMs,
+                refresher);
+        this.genres = new StaleWhileRevalidateCache<>("genres", maxSize, genresSoftTtlMs, genresHardTtlMs, refresher);
+        this.mpa = new StaleWhileRevalidateCache<>("mpa", maxSize, mpaSoftTtlMs, mpaHardTtlMs, refresher);
+    }
+
+    public StaleWhileRevalidateCache<String, ResponseEntity<Collection<Film>>> films() {
+        return films;
+    }
+
+    public StaleWhileRevalidateCache<String, Collection<Film>> popular() {
+        return popular;
+    }
+
+    public StaleWhileRevalidateCache<String, Collection<Genre>> genres() {
+        return genres;
+    }
+
+    public StaleWhileRevalidateCache<String, Collection<Mpa>> mpa() {
+        return mpa;
+    }
+
+    public List<ResponseCacheStats> stats() {
+        return List.of(films.stats(), popular.stats(), genres.stats(), mpa.stats());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFilmSaved(FilmSavedEvent event) {
+        invalidateFilms();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFilmDeleted(FilmDeletedEvent event) {
+        invalidateFilms();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFilmLike(FilmLikeEvent event) {
+        films.markAllStale();
+        popular.markAllStale();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserDeleted(UserDeletedEvent event) {
+        films.markAllStale();
+        popular.markAllStale();
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+    }
+
+    private void invalidateFilms() {
+        films.invalidateAll();
+        popular.invalidateAll();
+    }
+}
@@ -0,0 +1,159 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import ru.yandex.practicum.filmorate.model.ResponseCacheStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Кэш ответов со схемой stale-while-revalidate. Запись младше softTtlMs отдаётся как есть; запись между softTtlMs
+ * и hardTtlMs отдаётся сразу, а её обновление уходит в executor, не больше одного на ключ. Запись старше
+ * hardTtlMs или отсутствующая загружается в потоке запроса. Если executor отказал, запись остаётся устаревшей
+ * и обновление будет предложено следующим запросом. Поколения защищают от записи данных, загруженных до инвалидации.
+ * markAllStale не удаляет записи, а только делает их устаревшими: они продолжают отдаваться и обновляются в фоне,
+ * а значение, загрузка которого началась до пометки, записывается, но остаётся устаревшим.
+ */
+public class StaleWhileRevalidateCache<K, V> {
+    private final String name;
+    private final int maxSize;
+    private final long softTtlMs;
+    private final long hardTtlMs;
+    private final Executor refresher;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private long generation;
+    private long staleMark;
+    private long hits;
+    private long staleHits;
+    private long misses;
+    private long refreshes;
+    private long refreshFailures;
+    private long rejectedRefreshes;
+
+    public StaleWhileRevalidateCache(String name, int maxSize, long softTtlMs, long hardTtlMs, Executor refresher) {
+        this(name, maxSize, softTtlMs, hardTtlMs, refresher, System::currentTimeMillis);
+    }
+
+    public StaleWhileRevalidateCache(String name, int maxSize, long softTtlMs, long hardTtlMs, Executor refresher,
+                                     LongSupplier clock) {
+        if (maxSize <= 0 || softTtlMs <= 0 || hardTtlMs < softTtlMs) {
+            throw new IllegalArgumentException("Размер кэша и мягкий срок жизни должны быть больше 0, "
+                    + "а жёсткий срок жизни не может быть меньше мягкого");
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.softTtlMs = softTtlMs;
+        this.hardTtlMs = hardTtlMs;
+        this.refresher = refresher;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > StaleWhileRevalidateCache.this.maxSize;
+            }
+        };
+    }
+
+    public V get(K key, Supplier<V> loader) {
+        Load load;
+        synchronized (this) {
+            load = new Load(generation, staleMark);
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                long age = clock.getAsLong() - entry.loadedAt;
+                if (age < softTtlMs && entry.staleMark == staleMark) {
+                    hits++;
+                    return entry.value;
+                }
+                if (age < hardTtlMs) {
+                    staleHits++;
+                    if (!entry.refreshing) {
+                        entry.refreshing = true;
+                        scheduleRefresh(key, loader, load);
+                    }
+                    return entry.value;
+                }
+            }
+            misses++;
+        }
+        V value = loader.get();
+        put(key, value, load);
+        return value;
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized void markAllStale() {
+        staleMark++;
+    }
+
+    public synchronized ResponseCacheStats stats() {
+        return new ResponseCacheStats(name, entries.size(), hits, staleHits, misses, refreshes, refreshFailures,
+                rejectedRefreshes);
+    }
+
+    private void scheduleRefresh(K key, Supplier<V> loader, Load load) {
+        try {
+            refresher.execute(() -> refresh(key, loader, load));
+        } catch (RejectedExecutionException e) {
+            rejectedRefreshes++;
+            release(key);
+        }
+    }
+
+    private void refresh(K key, Supplier<V> loader, Load load) {
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                refreshFailures++;
+                release(key);
+            }
+            return;
+        }
+        synchronized (this) {
+            refreshes++;
+            put(key, value, load);
+        }
+    }
+
+    private synchronized void put(K key, V value, Load load) {
+        Entry<V> current = entries.get(key);
+        if (load.generation() != generation || current != null && current.staleMark > load.staleMark()) {
+            release(key);
+            return;
+        }
+        entries.put(key, new Entry<>(value, clock.getAsLong(), load.staleMark()));
+    }
+
+    private synchronized void release(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            entry.refreshing = false;
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long loadedAt;
+        private final long staleMark;
+        private boolean refreshing;
+
+        Entry(V value, long loadedAt, long staleMark) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+            this.staleMark = staleMark;
+        }
+    }
+
+    private record Load(long generation, long staleMark) {
+    }
+}
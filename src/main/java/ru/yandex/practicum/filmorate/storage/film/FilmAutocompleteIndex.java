@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.event.FilmDeletedEvent;
+import ru.yandex.practicum.filmorate.event.FilmLikeEvent;
+import ru.yandex.practicum.filmorate.event.FilmSavedEvent;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.storage.search.PrefixTrie;
+
+import java.util.List;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmAutocompleteIndex {
+    private final JdbcTemplate jdbcTemplate;
+    private volatile PrefixTrie trie = new PrefixTrie();
+
+    @PostConstruct
+    public void rebuild() {
+        PrefixTrie rebuilt = new PrefixTrie();
+        String query = """
+                SELECT f.id, f.name, COUNT(l.user_id) AS likes_count
+                FROM films f
+                LEFT JOIN likes l ON f.id = l.film_id
+                GROUP BY f.id, f.name
+                """;
+        jdbcTemplate.query(query, rs -> {
+            rebuilt.put(rs.getInt("id"), rs.getString("name"), rs.getInt("likes_count"));
+        });
+        trie = rebuilt;
+        log.info("Автодополнение названий фильмов построено, количество фильмов: {}", rebuilt.size());
+    }
+
+    public List<Suggestion> complete(String prefix, int limit) {
+        PrefixTrie current = trie;
+        return current.complete(prefix, limit).stream()
+                .map(id -> new Suggestion(id, current.text(id)))
+                .toList();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFilmSaved(FilmSavedEvent event) {
+        trie.put(event.getFilm().getId(), event.getFilm().getName());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFilmDeleted(FilmDeletedEvent event) {
+        trie.remove(event.getFilmId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFilmLike(FilmLikeEvent event) {
+        trie.adjustScore(event.getFilmId(), event.isLiked() ? 1 : -1);
+    }
+}
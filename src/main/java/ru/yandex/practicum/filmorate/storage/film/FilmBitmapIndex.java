@@ -0,0 +1,168 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.storage.CompressedBitmap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Битовые индексы фильмов по жанру, рейтингу MPA, году выхода и продолжительности. Фильтр — это пересечение
+ * карт по заданным условиям, а диапазоны годов и продолжительностей — объединение карт из диапазона ключей.
+ * Продолжительности хранятся корзинами по DURATION_BUCKET минут; граничная корзина дофильтровывается по точной
+ * продолжительности фильма.
+ * Счётчики фасетов — мощности пересечений отфильтрованного множества с картами жанров, рейтингов и годов.
+ */
+public class FilmBitmapIndex {
+    private static final int DURATION_BUCKET = 10;
+
+    private final CompressedBitmap all = new CompressedBitmap();
+    private final Map<Integer, CompressedBitmap> byGenre = new HashMap<>();
+    private final Map<Integer, CompressedBitmap> byMpa = new HashMap<>();
+    private final NavigableMap<Integer, CompressedBitmap> byYear = new TreeMap<>();
+    private final NavigableMap<Integer, CompressedBitmap> byDuration = new TreeMap<>();
+    private final Map<Integer, Integer> durations = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void put(int filmId, Collection<Integer> genreIds, Integer mpaId, Integer year, Integer duration) {
+        lock.writeLock().lock();
+        try {
+            removeFilm(filmId);
+            all.add(filmId);
+            genreIds.forEach(genreId -> addTo(byGenre, genreId, filmId));
+            addTo(byMpa, mpaId, filmId);
+            addTo(byYear, year, filmId);
+            if (duration != null) {
+                addTo(byDuration, Math.floorDiv(duration, DURATION_BUCKET), filmId);
+                durations.put(filmId, duration);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int filmId) {
+        lock.writeLock().lock();
+        try {
+            removeFilm(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public CompressedBitmap filter(FilmFilter filter) {
+        lock.readLock().lock();
+        try {
+            CompressedBitmap result = select(filter);
+            return result == all ? all.copy() : result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Facets facets(FilmFilter filter) {
+        lock.readLock().lock();
+        try {
+            CompressedBitmap selected = select(filter);
+            Map<Integer, Integer> decades = new TreeMap<>();
+            byYear.forEach((year, films) -> {
+                int count = selected.andCardinality(films);
+                if (count > 0) {
+                    decades.merge(Math.floorDiv(year, 10) * 10, count, Integer::sum);
+                }
+            });
+            return new Facets(selected.cardinality(), countByKey(selected, byGenre), countByKey(selected, byMpa),
+                    decades);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return all.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private CompressedBitmap select(FilmFilter filter) {
+        CompressedBitmap result = all;
+        if (filter.getGenreId() != null) {
+            result = result.and(byGenre.getOrDefault(filter.getGenreId(), new CompressedBitmap()));
+        }
+        if (filter.getMpaId() != null) {
+            result = result.and(byMpa.getOrDefault(filter.getMpaId(), new CompressedBitmap()));
+        }
+        if (filter.getYearFrom() != null || filter.getYearTo() != null) {
+            int from = filter.getYearFrom() != null ? filter.getYearFrom() : Integer.MIN_VALUE;
+            int to = filter.getYearTo() != null ? filter.getYearTo() : Integer.MAX_VALUE;
+            result = result.and(CompressedBitmap.or(byYear.subMap(from, true, to, true).values()));
+        }
+        if (filter.getMaxDuration() != null) {
+            result = result.and(notLongerThan(filter.getMaxDuration()));
+        }
+        return result;
+    }
+
+    private void removeFilm(int filmId) {
+        if (!all.remove(filmId)) {
+            return;
+        }
+        removeFrom(byGenre, filmId);
+        removeFrom(byMpa, filmId);
+        removeFrom(byYear, filmId);
+        removeFrom(byDuration, filmId);
+        durations.remove(filmId);
+    }
+
+    private static void addTo(Map<Integer, CompressedBitmap> bitmaps, Integer key, int filmId) {
+        if (key != null) {
+            bitmaps.computeIfAbsent(key, k -> new CompressedBitmap()).add(filmId);
+        }
+    }
+
+    private static void removeFrom(Map<Integer, CompressedBitmap> bitmaps, int filmId) {
+        bitmaps.values().removeIf(bitmap -> bitmap.remove(filmId) && bitmap.isEmpty());
+    }
+
+    private static Map<Integer, Integer> countByKey(CompressedBitmap selected,
+                                                    Map<Integer, CompressedBitmap> bitmaps) {
+        Map<Integer, Integer> counts = new TreeMap<>();
+        bitmaps.forEach((key, films) -> {
+            int count = selected.andCardinality(films);
+            if (count > 0) {
+                counts.put(key, count);
+            }
+        });
+        return counts;
+    }
+
+    private CompressedBitmap notLongerThan(int maxDuration) {
+        int boundary = Math.floorDiv(maxDuration, DURATION_BUCKET);
+        List<CompressedBitmap> bitmaps = new ArrayList<>(byDuration.headMap(boundary, false).values());
+        CompressedBitmap partial = byDuration.get(boundary);
+        if (partial != null) {
+            CompressedBitmap fitting = new CompressedBitmap();
+            for (int filmId : partial.toArray()) {
+                if (durations.get(filmId) <= maxDuration) {
+                    fitting.add(filmId);
+                }
+            }
+            bitmaps.add(fitting);
+        }
+        return CompressedBitmap.or(bitmaps);
+    }
+
+    public record Facets(int total, Map<Integer, Integer> genres, Map<Integer, Integer> mpa,
+                         Map<Integer, Integer> decades) {
+    }
+}
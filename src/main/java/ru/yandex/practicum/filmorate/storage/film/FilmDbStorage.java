@@ -2,51 +2,81 @@ package ru.yandex.practicum.filmorate.storage.film;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Primary;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.event.FilmDeletedEvent;
+import ru.yandex.practicum.filmorate.event.FilmLikeEvent;
+import ru.yandex.practicum.filmorate.event.FilmSavedEvent;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.VersionConflictException;
+import ru.yandex.practicum.filmorate.model.EntityVersion;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
-import ru.yandex.practicum.filmorate.model.User;
-import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
-import ru.yandex.practicum.filmorate.storage.genre.GenreRowMapper;
-import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
-import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
-import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
-import ru.yandex.practicum.filmorate.storage.user.UserRowMapper;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
-import java.sql.Statement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 
 @Slf4j
 @Repository("FilmDbStorage")
-@Primary
 public class FilmDbStorage implements FilmStorage {
 
+    static final String INSERT_LIKE_QUERY = "MERGE INTO likes l " +
+            "USING (SELECT CAST(? AS INTEGER) AS film_id, CAST(? AS INTEGER) AS user_id) s " +
+            "ON l.film_id = s.film_id AND l.user_id = s.user_id " +
+            "WHEN NOT MATCHED THEN INSERT (film_id, user_id) VALUES (s.film_id, s.user_id)";
+    static final String DELETE_LIKE_QUERY = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
+    static final String TOUCH_FILM_QUERY = "UPDATE films SET version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = ?";
+
+    private static final int HYDRATION_CHUNK_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
     private final FilmRowMapper filmRowMapper;
-
-    private final UserRowMapper userRowMapper;
+    private final ReferenceDataCache referenceDataCache;
+    private final FilmPopularityIndex popularityIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LikeWriteBehindQueue likeQueue;
 
     @Autowired
-    public FilmDbStorage(JdbcTemplate jdbcTemplate, FilmRowMapper filmRowMapper, UserRowMapper userRowMapper) {
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, FilmRowMapper filmRowMapper, ReferenceDataCache referenceDataCache,
+                         FilmPopularityIndex popularityIndex, ApplicationEventPublisher eventPublisher,
+                         LikeWriteBehindQueue likeQueue) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
         this.filmRowMapper = filmRowMapper;
-        this.userRowMapper = userRowMapper;
+        this.referenceDataCache = referenceDataCache;
+        this.popularityIndex = popularityIndex;
+        this.eventPublisher = eventPublisher;
+        this.likeQueue = likeQueue;
     }
 
     @Override
+    @Transactional
     public Film addFilm(Film film) {
         if (film.getLikes() == null) {
             film.setLikes(new HashSet<>());
@@ -62,7 +92,7 @@ public class FilmDbStorage implements FilmStorage {
                 "VALUES (?, ?, ?, ?, ?)";
         GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
         jdbcTemplate.update(connection -> {
-            PreparedStatement ps = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+            PreparedStatement ps = connection.prepareStatement(query, new String[]{"id"});
             ps.setString(1, film.getName());
             ps.setString(2, film.getDescription());
             ps.setDate(3, Date.valueOf(film.getReleaseDate()));
@@ -77,51 +107,131 @@ public class FilmDbStorage implements FilmStorage {
             throw new RuntimeException("Не удалось сохранить данные");
         }
         film.setMpa(getFilmWithMpa(film));
-        return setGenres(film);
+        saveGenres(film, Set.of());
+        eventPublisher.publishEvent(new FilmSavedEvent(film));
+        return film;
+    }
+
+    @Override
+    @Transactional
+    public List<Film> addFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        String query = "INSERT INTO films (name, description, release_date, duration, mpa_id) " +
+                "VALUES (?, ?, ?, ?, ?)";
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(query, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Film film = films.get(i);
+                        ps.setString(1, film.getName());
+                        ps.setString(2, film.getDescription());
+                        ps.setDate(3, Date.valueOf(film.getReleaseDate()));
+                        ps.setInt(4, film.getDuration());
+                        if (film.getMpa() != null && film.getMpa().getId() != null) {
+                            ps.setInt(5, film.getMpa().getId());
+                        } else {
+                            ps.setNull(5, Types.INTEGER);
+                        }
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return films.size();
+                    }
+                },
+                keyHolder
+        );
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != films.size()) {
+            throw new RuntimeException("Не удалось сохранить данные");
+        }
+        List<Object[]> filmGenres = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(((Number) keys.get(i).get("id")).intValue());
+            film.setLikes(new HashSet<>());
+            if (film.getMpa() == null) {
+                film.setMpa(new Mpa());
+            }
+            film.setMpa(getFilmWithMpa(film));
+            film.setGenres(resolveGenres(film));
+            for (Genre genre : film.getGenres()) {
+                filmGenres.add(new Object[]{film.getId(), genre.getId()});
+            }
+        }
+        if (!filmGenres.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", filmGenres);
+        }
+        for (Film film : films) {
+            eventPublisher.publishEvent(new FilmSavedEvent(film));
+        }
+        return films;
     }
 
     @Override
+    @Transactional
     public Film updateFilm(Film film) {
+        return updateFilm(film, null);
+    }
+
+    @Override
+    @Transactional
+    public Film updateFilm(Film film, Long expectedVersion) {
         Integer id = film.getId();
-        Optional<Film> oldFilmOpt = getFilmById(id);
-        if (oldFilmOpt.isEmpty()) {
-            throw new NotFoundException("Фильм с id = " + id + " не найден");
-        }
-        String query = "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, mpa_id = ? " +
-                "WHERE id = ?";
-        jdbcTemplate.update(
+        String query = "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, mpa_id = ?, " +
+                "version = version + 1, content_version = content_version + 1, updated_at = CURRENT_TIMESTAMP " +
+                "WHERE id = ? AND (CAST(? AS BIGINT) IS NULL OR content_version = ?)";
+        int rowsUpdated = jdbcTemplate.update(
                 query,
                 film.getName(),
                 film.getDescription(),
                 Date.valueOf(film.getReleaseDate()),
                 film.getDuration(),
                 film.getMpa().getId(),
-                id
+                id,
+                expectedVersion,
+                expectedVersion
         );
-        deleteGenresFromFilm(id);
-        return setGenres(film);
+        if (rowsUpdated == 0) {
+            if (expectedVersion == null || !existsById(id)) {
+                throw new NotFoundException("Фильм с id = " + id + " не найден");
+            }
+            throw new VersionConflictException("Фильм с id = " + id + " уже изменён, версия " + expectedVersion +
+                    " устарела");
+        }
+        saveGenres(film, getGenreIds(id));
+        // строка заблокирована нашим UPDATE до конца транзакции, поэтому прочитанная версия — ровно наша
+        film.setVersion(getFilmVersion(id).orElseThrow());
+        eventPublisher.publishEvent(new FilmSavedEvent(film));
+        return film;
     }
 
     @Override
     public void deleteFilm(Integer id) {
         String query = "DELETE FROM films WHERE id = ?";
         int rowsDeleted = jdbcTemplate.update(query, id);
+        if (rowsDeleted > 0) {
+            eventPublisher.publishEvent(new FilmDeletedEvent(id));
+        }
     }
 
     @Override
     public List<Film> findAll() {
-        String sql = "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpa_id, m.name "
-                + "FROM FILMS f "
-                + "LEFT JOIN mpa m ON f.mpa_id = m.id";
-        List<Film> films = jdbcTemplate.query(sql, filmRowMapper);
-        for (Film film : films) {
-            Integer id = film.getId();
-            Set<Genre> genres = getGenresByFilmId(id);
-            film.setGenres(genres);
-            film.setMpa(getFilmWithMpa(film));
-            film.setLikes(getLikes(id));
-        }
-        return films;
+        String query = "SELECT * FROM films ORDER BY id";
+        List<Film> films = jdbcTemplate.query(query, filmRowMapper);
+        return hydrate(films);
+    }
+
+    @Override
+    public List<Film> findPage(Integer afterId, Integer limit) {
+        String query = "SELECT * FROM films WHERE id > ? ORDER BY id LIMIT ?";
+        List<Film> films = jdbcTemplate.query(query, filmRowMapper, afterId, limit);
+        return hydrate(films);
     }
 
     @Override
@@ -129,10 +239,7 @@ public class FilmDbStorage implements FilmStorage {
         String query = "SELECT * FROM films WHERE id = ?";
         try {
             Film film = jdbcTemplate.queryForObject(query, filmRowMapper, id);
-            Set<Genre> genres = getGenresByFilmId(id);
-            film.setGenres(genres);
-            film.setMpa(getFilmWithMpa(film));
-            film.setLikes(getLikes(id));
+            hydrate(List.of(film));
             return Optional.ofNullable(film);
         } catch (EmptyResultDataAccessException ignored) {
             return Optional.empty();
@@ -140,96 +247,175 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     @Override
-    public void like(Integer filmId, Integer userId) {
-        String query = "INSERT INTO likes (film_id, user_id) VALUES (?, ?)";
-        jdbcTemplate.update(query, filmId, userId);
+    public Optional<EntityVersion> getFilmVersion(Integer id) {
+        String query = "SELECT version, content_version, updated_at FROM films WHERE id = ?";
+        return jdbcTemplate.query(query, (rs, rowNum) -> new EntityVersion(rs.getLong("version"),
+                        rs.getLong("content_version"), rs.getTimestamp("updated_at").toInstant()), id)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public boolean existsById(Integer id) {
+        String query = "SELECT EXISTS(SELECT 1 FROM films WHERE id = ?)";
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(query, Boolean.class, id));
     }
 
     @Override
-    public void unLike(Integer filmId, Integer userId) {
-        String query = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
-        jdbcTemplate.update(query, filmId, userId);
+    @Transactional
+    public boolean like(Integer filmId, Integer userId) {
+        if (likeQueue.isEnabled()) {
+            return likeQueue.like(filmId, userId);
+        }
+        int rowsInserted;
+        try {
+            rowsInserted = jdbcTemplate.update(INSERT_LIKE_QUERY, filmId, userId);
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+        if (rowsInserted == 0) {
+            return false;
+        }
+        jdbcTemplate.update(TOUCH_FILM_QUERY, filmId);
+        eventPublisher.publishEvent(new FilmLikeEvent(filmId, userId, true));
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean unLike(Integer filmId, Integer userId) {
+        if (likeQueue.isEnabled()) {
+            return likeQueue.unLike(filmId, userId);
+        }
+        int rowsDeleted = jdbcTemplate.update(DELETE_LIKE_QUERY, filmId, userId);
+        if (rowsDeleted == 0) {
+            return false;
+        }
+        jdbcTemplate.update(TOUCH_FILM_QUERY, filmId);
+        eventPublisher.publishEvent(new FilmLikeEvent(filmId, userId, false));
+        return true;
     }
 
     @Override
     public List<Film> getMostPopulars(Integer amount) {
-        String query = """
-                SELECT films.*,
-                COUNT(likes.user_id) AS likes_count
-                FROM films
-                JOIN mpa ON films.mpa_id = mpa.id
-                LEFT JOIN likes ON films.id = likes.film_id
-                GROUP BY films.id
-                ORDER BY likes_count DESC, films.id
-                LIMIT ?
-                """;
-        List<Film> films = jdbcTemplate.query(query, new FilmRowMapper(), amount);
+        return getMostPopulars(amount, null, null, null);
+    }
+
+    @Override
+    public List<Film> getMostPopulars(Integer amount, Integer genreId, Integer mpaId, Integer year) {
+        return getFilmsByIds(popularityIndex.top(amount, genreId, mpaId, year));
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String query = "SELECT * FROM films WHERE id IN (:ids)";
+        Map<Integer, Film> filmsById = namedJdbcTemplate.query(query, Map.of("ids", ids), filmRowMapper).stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+        List<Film> films = ids.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return hydrate(films);
+    }
+
+    private List<Film> hydrate(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        Map<Integer, Film> filmsById = new HashMap<>();
         for (Film film : films) {
-            Integer id = film.getId();
-            Set<Genre> genres = getGenresByFilmId(id);
-            film.setGenres(genres);
-            film.setMpa(getFilmWithMpa(film));
-            film.setLikes(getLikes(id));
+            film.setGenres(new LinkedHashSet<>());
+            film.setLikes(new HashSet<>());
+            filmsById.put(film.getId(), film);
+        }
+        List<Integer> ids = new ArrayList<>(filmsById.keySet());
+        for (int from = 0; from < ids.size(); from += HYDRATION_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + HYDRATION_CHUNK_SIZE, ids.size()));
+            loadGenres(chunk, filmsById);
+            loadLikes(chunk, filmsById);
         }
+        loadMpa(films);
         return films;
     }
 
-    private Set<Genre> getGenresByFilmId(Integer id) {
-        String query = "SELECT fg.genre_id AS id, g.name AS name " +
-                "FROM film_genres AS fg " +
-                "JOIN genre AS g ON fg.genre_id = g.id " +
-                "WHERE fg.film_id = ? ORDER BY g.id";
-        List<Genre> genreList = jdbcTemplate.query(query, new GenreRowMapper(), id);
-        return new HashSet<>(genreList);
+    private void loadGenres(List<Integer> filmIds, Map<Integer, Film> filmsById) {
+        String query = "SELECT film_id, genre_id FROM film_genres WHERE film_id IN (:ids) ORDER BY film_id, genre_id";
+        namedJdbcTemplate.query(query, Map.of("ids", filmIds), (ResultSet rs) -> {
+            Set<Genre> genres = filmsById.get(rs.getInt("film_id")).getGenres();
+            referenceDataCache.getGenreById(rs.getInt("genre_id")).ifPresent(genres::add);
+        });
     }
 
-    private Film setGenres(Film film) {
-        Set<Genre> filmGenreSet = film.getGenres();
-        if (filmGenreSet != null) {
-            GenreStorage genreStorage = new GenreDbStorage(jdbcTemplate);
-            List<Genre> allGenres = genreStorage.getAllGenres();
-            Set<Integer> allGenresId = allGenres.stream()
-                    .map(Genre::getId)
-                    .collect(Collectors.toSet());
+    private void loadLikes(List<Integer> filmIds, Map<Integer, Film> filmsById) {
+        String query = "SELECT film_id, user_id FROM likes WHERE film_id IN (:ids)";
+        namedJdbcTemplate.query(query, Map.of("ids", filmIds), (ResultSet rs) -> {
+            filmsById.get(rs.getInt("film_id")).getLikes().add(rs.getInt("user_id"));
+        });
+    }
 
-            for (Genre genre : filmGenreSet) {
-                Integer genreId = genre.getId();
-                if (allGenresId.contains(genreId)) {
-                    setGenreToFilm(film.getId(), genreId);
-                }
-            }
+    private void loadMpa(List<Film> films) {
+        for (Film film : films) {
+            film.setMpa(getFilmWithMpa(film));
         }
-        return film;
     }
 
-    private Mpa getFilmWithMpa(Film film) {
-        Mpa mpa = film.getMpa();
-        if (mpa.getId() != null) {
-            MpaStorage mpaStorage = new MpaDbStorage(jdbcTemplate);
-            Optional<Mpa> mpaOpt = mpaStorage.getMpaById(mpa.getId());
-            if (mpaOpt.isPresent()) {
-                mpa = mpaOpt.get();
-            }
+    private Set<Genre> resolveGenres(Film film) {
+        Set<Genre> knownGenres = new LinkedHashSet<>();
+        if (film.getGenres() != null) {
+            film.getGenres().stream()
+                    .map(Genre::getId)
+                    .distinct()
+                    .sorted()
+                    .map(referenceDataCache::getGenreById)
+                    .flatMap(Optional::stream)
+                    .forEach(knownGenres::add);
         }
-        return mpa;
+        return knownGenres;
     }
 
-    private void setGenreToFilm(Integer filmId, Integer genreId) {
-        String query = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
-        jdbcTemplate.update(query, filmId, genreId);
+    private void saveGenres(Film film, Set<Integer> storedGenreIds) {
+        Set<Genre> knownGenres = resolveGenres(film);
+        film.setGenres(knownGenres);
+
+        Set<Integer> genreIds = knownGenres.stream()
+                .map(Genre::getId)
+                .collect(Collectors.toSet());
+        List<Integer> toInsert = genreIds.stream()
+                .filter(genreId -> !storedGenreIds.contains(genreId))
+                .collect(Collectors.toList());
+        List<Integer> toDelete = storedGenreIds.stream()
+                .filter(genreId -> !genreIds.contains(genreId))
+                .collect(Collectors.toList());
+        if (!toInsert.isEmpty()) {
+            String query = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+            jdbcTemplate.batchUpdate(query, toInsert, toInsert.size(), (ps, genreId) -> {
+                ps.setInt(1, film.getId());
+                ps.setInt(2, genreId);
+            });
+        }
+        if (!toDelete.isEmpty()) {
+            String query = "DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?";
+            jdbcTemplate.batchUpdate(query, toDelete, toDelete.size(), (ps, genreId) -> {
+                ps.setInt(1, film.getId());
+                ps.setInt(2, genreId);
+            });
+        }
     }
 
-    private void deleteGenresFromFilm(Integer filmId) {
-        String query = "DELETE FROM film_genres WHERE film_id = ?";
-        jdbcTemplate.update(query, filmId);
+    private Set<Integer> getGenreIds(Integer filmId) {
+        String query = "SELECT genre_id FROM film_genres WHERE film_id = ?";
+        return new HashSet<>(jdbcTemplate.queryForList(query, Integer.class, filmId));
     }
 
-    private Set<Integer> getLikes(Integer id) {
-        String query = "SELECT u.* FROM users u JOIN likes l ON u.id = l.user_id WHERE l.film_id = ?";
-        List<User> users = jdbcTemplate.query(query, userRowMapper, id);
-        return users.stream()
-                .map(user -> user.getId())
-                .collect(Collectors.toSet());
+    private Mpa getFilmWithMpa(Film film) {
+        Mpa mpa = film.getMpa();
+        if (mpa.getId() != null) {
+            mpa = referenceDataCache.getMpaById(mpa.getId()).orElse(mpa);
+        }
+        return mpa;
     }
 
 }
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.event.FilmDeletedEvent;
+import ru.yandex.practicum.filmorate.event.FilmSavedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmFilterIndex {
+    private final JdbcTemplate jdbcTemplate;
+    private volatile FilmBitmapIndex index = new FilmBitmapIndex();
+
+    @PostConstruct
+    public void rebuild() {
+        FilmBitmapIndex rebuilt = new FilmBitmapIndex();
+        Map<Integer, List<Integer>> genres = new HashMap<>();
+        jdbcTemplate.query("SELECT film_id, genre_id FROM film_genres", rs -> {
+            genres.computeIfAbsent(rs.getInt("film_id"), filmId -> new ArrayList<>()).add(rs.getInt("genre_id"));
+        });
+        String query = "SELECT id, mpa_id, EXTRACT(YEAR FROM release_date) AS release_year, duration FROM films";
+        jdbcTemplate.query(query, rs -> {
+            int filmId = rs.getInt("id");
+            rebuilt.put(filmId, genres.getOrDefault(filmId, List.of()), rs.getObject("mpa_id", Integer.class),
+                    rs.getInt("release_year"), rs.getInt("duration"));
+        });
+        index = rebuilt;
+        log.info("Битовый индекс фильмов построен, количество фильмов: {}", rebuilt.size());
+    }
+
+    public List<Integer> filter(FilmFilter filter, int afterId, int limit) {
+        return Arrays.stream(index.filter(filter).page(afterId, limit)).boxed().toList();
+    }
+
+    public FilmBitmapIndex.Facets facets(FilmFilter filter) {
+        return index.facets(filter);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFilmSaved(FilmSavedEvent event) {
+        Film film = event.getFilm();
+        List<Integer> genreIds = film.getGenres() == null ? List.of() : film.getGenres().stream()
+                .map(Genre::getId)
+                .toList();
+        Integer mpaId = film.getMpa() == null ? null : film.getMpa().getId();
+        Integer year = film.getReleaseDate() == null ? null : film.getReleaseDate().getYear();
+        index.put(film.getId(), genreIds, mpaId, year, film.getDuration());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFilmDeleted(FilmDeletedEvent event) {
+        index.remove(event.getFilmId());
+    }
+}
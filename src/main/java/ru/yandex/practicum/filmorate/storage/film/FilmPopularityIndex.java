@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.event.FilmDeletedEvent;
+import ru.yandex.practicum.filmorate.event.FilmLikeEvent;
+import ru.yandex.practicum.filmorate.event.FilmSavedEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmPopularityIndex {
+    private final JdbcTemplate jdbcTemplate;
+    private volatile ScopedLeaderboard leaderboard = new ScopedLeaderboard();
+
+    @PostConstruct
+    public void rebuild() {
+        ScopedLeaderboard rebuilt = new ScopedLeaderboard();
+        Map<Integer, List<Integer>> genres = new HashMap<>();
+        jdbcTemplate.query("SELECT film_id, genre_id FROM film_genres", rs -> {
+            genres.computeIfAbsent(rs.getInt("film_id"), filmId -> new ArrayList<>()).add(rs.getInt("genre_id"));
+        });
+        String query = """
+                SELECT f.id, f.mpa_id, EXTRACT(YEAR FROM f.release_date) AS release_year,
+                       COUNT(l.user_id) AS likes_count
+                FROM films f
+                LEFT JOIN likes l ON f.id = l.film_id
+                GROUP BY f.id, f.mpa_id, f.release_date
+                """;
+        jdbcTemplate.query(query, rs -> {
+            int filmId = rs.getInt("id");
+            rebuilt.put(filmId, genres.getOrDefault(filmId, List.of()), rs.getObject("mpa_id", Integer.class),
+                    rs.getInt("release_year"), rs.getInt("likes_count"));
+        });
+        leaderboard = rebuilt;
+        log.info("Рейтинг популярности построен, количество фильмов: {}", rebuilt.size());
+    }
+
+    public List<Integer> top(int amount) {
+        return leaderboard.top(amount, null, null, null);
+    }
+
+    public List<Integer> top(int amount, Integer genreId, Integer mpaId, Integer year) {
+        return leaderboard.top(amount, genreId, mpaId, year);
+    }
+
+    public int likesCount(int filmId) {
+        return leaderboard.score(filmId);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFilmSaved(FilmSavedEvent event) {
+        Film film = event.getFilm();
+        List<Integer> genreIds = film.getGenres() == null ? List.of() : film.getGenres().stream()
+                .map(Genre::getId)
+                .toList();
+        Integer mpaId = film.getMpa() == null ? null : film.getMpa().getId();
+        Integer year = film.getReleaseDate() == null ? null : film.getReleaseDate().getYear();
+        leaderboard.put(film.getId(), genreIds, mpaId, year);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFilmDeleted(FilmDeletedEvent event) {
+        leaderboard.remove(event.getFilmId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFilmLike(FilmLikeEvent event) {
+        if (event.isLiked()) {
+            leaderboard.increment(event.getFilmId());
+        } else {
+            leaderboard.decrement(event.getFilmId());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserDeleted(UserDeletedEvent event) {
+        event.getLikedFilmIds().forEach(leaderboard::decrement);
+    }
+}
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.event.FilmDeletedEvent;
+import ru.yandex.practicum.filmorate.event.FilmLikeEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+
+@Slf4j
+@Component
+public class FilmRecommendationIndex {
+    private final JdbcTemplate jdbcTemplate;
+    private final int neighbours;
+    private final int fanOut;
+    private final int maxVisited;
+    private volatile LikeMatrix matrix = new LikeMatrix();
+
+    @Autowired
+    public FilmRecommendationIndex(JdbcTemplate jdbcTemplate,
+                                   @Value("${filmorate.recommendations.neighbours:" + LikeMatrix.DEFAULT_NEIGHBOURS + "}")
+                                   int neighbours,
+                                   @Value("${filmorate.recommendations.fan-out:" + LikeMatrix.DEFAULT_FAN_OUT + "}")
+                                   int fanOut,
+                                   @Value("${filmorate.recommendations.max-visited:" + LikeMatrix.DEFAULT_MAX_VISITED + "}")
+                                   int maxVisited) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.neighbours = neighbours;
+        this.fanOut = fanOut;
+        this.maxVisited = maxVisited;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        LikeMatrix rebuilt = new LikeMatrix();
+        String query = "SELECT user_id, film_id FROM likes";
+        jdbcTemplate.query(query, rs -> {
+            rebuilt.add(rs.getInt("user_id"), rs.getInt("film_id"));
+        });
+        matrix = rebuilt;
+        log.info("Матрица лайков построена, количество юзеров с лайками: {}", rebuilt.usersCount());
+    }
+
+    public int[] recommend(int userId, int limit) {
+        return matrix.recommend(userId, limit, neighbours, fanOut, maxVisited);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFilmLike(FilmLikeEvent event) {
+        if (event.isLiked()) {
+            matrix.add(event.getUserId(), event.getFilmId());
+        } else {
+            matrix.remove(event.getUserId(), event.getFilmId());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFilmDeleted(FilmDeletedEvent event) {
+        matrix.removeFilm(event.getFilmId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserDeleted(UserDeletedEvent event) {
+        matrix.removeUser(event.getUserId());
+    }
+}
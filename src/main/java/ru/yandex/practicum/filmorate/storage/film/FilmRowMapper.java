@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.storage.film;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.EntityVersion;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
@@ -23,6 +24,8 @@ public class FilmRowMapper implements RowMapper<Film> {
 
         int mpaId = resultSet.getInt("mpa_id");
         film.setMpa(new Mpa(mpaId, null));
+        film.setVersion(new EntityVersion(resultSet.getLong("version"), resultSet.getLong("content_version"),
+                resultSet.getTimestamp("updated_at").toInstant()));
 
         return film;
     }
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.event.FilmDeletedEvent;
+import ru.yandex.practicum.filmorate.event.FilmSavedEvent;
+import ru.yandex.practicum.filmorate.storage.search.InvertedIndex;
+import ru.yandex.practicum.filmorate.storage.search.TextAnalyzer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmSearchIndex {
+    private static final int NAME_WEIGHT = 2;
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile InvertedIndex index = new InvertedIndex();
+
+    @PostConstruct
+    public void rebuild() {
+        InvertedIndex rebuilt = new InvertedIndex();
+        String query = "SELECT id, name, description FROM films";
+        jdbcTemplate.query(query, rs -> {
+            rebuilt.put(rs.getInt("id"), termFrequencies(rs.getString("name"), rs.getString("description")));
+        });
+        index = rebuilt;
+        log.info("Поисковый индекс построен, количество фильмов: {}", rebuilt.size());
+    }
+
+    public List<Integer> search(String text, int limit) {
+        return index.search(TextAnalyzer.terms(text), limit);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFilmSaved(FilmSavedEvent event) {
+        index.put(event.getFilm().getId(),
+                termFrequencies(event.getFilm().getName(), event.getFilm().getDescription()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFilmDeleted(FilmDeletedEvent event) {
+        index.remove(event.getFilmId());
+    }
+
+    private static Map<String, Integer> termFrequencies(String name, String description) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        TextAnalyzer.terms(name).forEach(term -> frequencies.merge(term, NAME_WEIGHT, Integer::sum));
+        TextAnalyzer.terms(description).forEach(term -> frequencies.merge(term, 1, Integer::sum));
+        return frequencies;
+    }
+}
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.event.FilmDeletedEvent;
+import ru.yandex.practicum.filmorate.event.FilmLikeEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Component
+public class FilmSimilarityIndex {
+    private final JdbcTemplate jdbcTemplate;
+    private final int bands;
+    private final int rows;
+    private volatile MinHashIndex index;
+
+    @Autowired
+    public FilmSimilarityIndex(JdbcTemplate jdbcTemplate,
+                               @Value("${filmorate.similar.bands:" + MinHashIndex.DEFAULT_BANDS + "}") int bands,
+                               @Value("${filmorate.similar.rows:" + MinHashIndex.DEFAULT_ROWS + "}") int rows) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bands = bands;
+        this.rows = rows;
+        this.index = new MinHashIndex(bands, rows);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        MinHashIndex rebuilt = new MinHashIndex(bands, rows);
+        String query = "SELECT film_id, user_id FROM likes ORDER BY film_id, user_id";
+        Map<Integer, List<Integer>> likers = new HashMap<>();
+        jdbcTemplate.query(query, rs -> {
+            likers.computeIfAbsent(rs.getInt("film_id"), filmId -> new ArrayList<>()).add(rs.getInt("user_id"));
+        });
+        likers.forEach((filmId, users) -> rebuilt.put(filmId, users.stream().mapToInt(Integer::intValue).toArray()));
+        index = rebuilt;
+        log.info("MinHash-индекс построен, полос: {}, строк в полосе: {}, фильмов: {}", bands, rows, rebuilt.size());
+    }
+
+    public List<Integer> similar(int filmId, int limit) {
+        return index.similar(filmId, limit);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFilmLike(FilmLikeEvent event) {
+        if (event.isLiked()) {
+            index.add(event.getFilmId(), event.getUserId());
+        } else {
+            index.remove(event.getFilmId(), event.getUserId());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFilmDeleted(FilmDeletedEvent event) {
+        index.removeFilm(event.getFilmId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserDeleted(UserDeletedEvent event) {
+        index.removeUser(event.getUserId());
+    }
+}
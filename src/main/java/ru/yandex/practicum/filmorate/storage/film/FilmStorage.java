@@ -1,26 +1,42 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import ru.yandex.practicum.filmorate.model.EntityVersion;
 import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface FilmStorage {
 
     Film addFilm(Film film);
 
+    List<Film> addFilms(List<Film> films);
+
     Film updateFilm(Film film);
 
+    Film updateFilm(Film film, Long expectedVersion);
+
     void deleteFilm(Integer id);
 
     Collection<Film> findAll();
 
+    Collection<Film> findPage(Integer afterId, Integer limit);
+
     Optional<Film> getFilmById(Integer id);
 
-    void like(Integer filmId, Integer userId);
+    Optional<EntityVersion> getFilmVersion(Integer id);
+
+    List<Film> getFilmsByIds(List<Integer> ids);
 
-    void unLike(Integer filmId, Integer userId);
+    boolean existsById(Integer id);
+
+    boolean like(Integer filmId, Integer userId);
+
+    boolean unLike(Integer filmId, Integer userId);
 
     Collection<Film> getMostPopulars(Integer amount);
 
+    Collection<Film> getMostPopulars(Integer amount, Integer genreId, Integer mpaId, Integer year);
+
 }
@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.event.FilmDeletedEvent;
+import ru.yandex.practicum.filmorate.event.FilmLikeEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Трендовые фильмы. Лайки копятся в очереди, фоновая задача раз в refresh-interval-ms применяет их к весам,
+ * убирает лайки старше окна и публикует новый снимок топа; чтение отдаёт последний снимок без блокировок.
+ */
+@Slf4j
+@Component
+public class FilmTrendingIndex {
+    public static final long DEFAULT_HALF_LIFE_HOURS = 24;
+    public static final long DEFAULT_WINDOW_HOURS = 168;
+    public static final long DEFAULT_REFRESH_INTERVAL_MS = 60000;
+    public static final int DEFAULT_SNAPSHOT_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long halfLife;
+    private final long window;
+    private final long refreshIntervalMs;
+    private final int snapshotSize;
+
+    private final Queue<Consumer<TrendingScores>> changes = new ConcurrentLinkedQueue<>();
+    private TrendingScores scores;
+    private volatile List<Integer> snapshot = List.of();
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public FilmTrendingIndex(JdbcTemplate jdbcTemplate,
+                             @Value("${filmorate.trending.half-life-hours:" + DEFAULT_HALF_LIFE_HOURS + "}")
+                             long halfLifeHours,
+                             @Value("${filmorate.trending.window-hours:" + DEFAULT_WINDOW_HOURS + "}")
+                             long windowHours,
+                             @Value("${filmorate.trending.refresh-interval-ms:" + DEFAULT_REFRESH_INTERVAL_MS + "}")
+                             long refreshIntervalMs,
+                             @Value("${filmorate.trending.snapshot-size:" + DEFAULT_SNAPSHOT_SIZE + "}")
+                             int snapshotSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.halfLife = TimeUnit.HOURS.toMillis(halfLifeHours);
+        this.window = TimeUnit.HOURS.toMillis(windowHours);
+        this.refreshIntervalMs = refreshIntervalMs;
+        this.snapshotSize = snapshotSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        rebuild();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trending-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, refreshIntervalMs, refreshIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public synchronized void rebuild() {
+        long now = System.currentTimeMillis();
+        TrendingScores rebuilt = new TrendingScores(halfLife, window, now);
+        changes.clear();
+        String query = "SELECT film_id, user_id, created_at FROM likes WHERE created_at >= ? ORDER BY created_at";
+        jdbcTemplate.query(query, rs -> {
+            rebuilt.like(rs.getInt("film_id"), rs.getInt("user_id"), rs.getTimestamp("created_at").getTime());
+        }, new Timestamp(now - window));
+        scores = rebuilt;
+        snapshot = rebuilt.top(snapshotSize);
+        log.info("Рейтинг трендов построен, фильмов с лайками за окно: {}", rebuilt.size());
+    }
+
+    public synchronized void refresh() {
+        int applied = 0;
+        Consumer<TrendingScores> change;
+        while ((change = changes.poll()) != null) {
+            change.accept(scores);
+            applied++;
+        }
+        scores.advance(System.currentTimeMillis());
+        snapshot = scores.top(snapshotSize);
+        log.debug("Рейтинг трендов пересчитан, применено изменений: {}", applied);
+    }
+
+    public List<Integer> top(int amount) {
+        List<Integer> current = snapshot;
+        return current.subList(0, Math.min(amount, current.size()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFilmLike(FilmLikeEvent event) {
+        int filmId = event.getFilmId();
+        int userId = event.getUserId();
+        if (event.isLiked()) {
+            long at = System.currentTimeMillis();
+            changes.add(trending -> trending.like(filmId, userId, at));
+        } else {
+            changes.add(trending -> trending.unLike(filmId, userId));
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFilmDeleted(FilmDeletedEvent event) {
+        int filmId = event.getFilmId();
+        changes.add(trending -> trending.removeFilm(filmId));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserDeleted(UserDeletedEvent event) {
+        int userId = event.getUserId();
+        changes.add(trending -> trending.removeUser(userId));
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.error("Не удалось пересчитать рейтинг трендов", e);
+        }
+    }
+}
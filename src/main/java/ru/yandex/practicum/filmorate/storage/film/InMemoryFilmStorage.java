@@ -1,39 +1,77 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import org.springframework.context.annotation.Fallback;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.VersionConflictException;
+import ru.yandex.practicum.filmorate.model.EntityVersion;
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.time.Instant;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Component
+@Fallback
 public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Integer, Film> films = new HashMap<>();
+    private final TreeMap<Integer, Film> films = new TreeMap<>();
+    private final Leaderboard leaderboard = new Leaderboard();
+    private final Map<Integer, EntityVersion> versions = new HashMap<>();
 
     @Override
     public Film addFilm(Film film) {
+        if (film.getLikes() == null) {
+            film.setLikes(new HashSet<>());
+        }
         film.setId(getNextId());
         films.put(film.getId(), film);
+        touch(film.getId());
+        leaderboard.set(film.getId(), film.getLikes().size());
         return film;
     }
 
+    @Override
+    public List<Film> addFilms(List<Film> newFilms) {
+        return newFilms.stream()
+                .map(this::addFilm)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public Film updateFilm(Film film) {
+        return updateFilm(film, null);
+    }
+
+    @Override
+    public Film updateFilm(Film film, Long expectedVersion) {
         Film oldFilm = films.get(film.getId());
+        if (oldFilm == null) {
+            throw new NotFoundException("Фильм с id = " + film.getId() + " не найден");
+        }
+        if (expectedVersion != null && !expectedVersion.equals(versions.get(film.getId()).getContentVersion())) {
+            throw new VersionConflictException("Фильм с id = " + film.getId() + " уже изменён, версия " +
+                    expectedVersion + " устарела");
+        }
         oldFilm.setDescription(film.getDescription());
         oldFilm.setName(film.getName());
         oldFilm.setDuration(film.getDuration());
         oldFilm.setReleaseDate(film.getReleaseDate());
+        touch(oldFilm.getId(), true);
         return oldFilm;
     }
 
     @Override
     public void deleteFilm(Integer id) {
         films.remove(id);
+        versions.remove(id);
+        leaderboard.remove(id);
     }
 
     @Override
@@ -41,38 +79,97 @@ public class InMemoryFilmStorage implements FilmStorage {
         return films.values();
     }
 
+    @Override
+    public Collection<Film> findPage(Integer afterId, Integer limit) {
+        return films.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public Optional<Film> getFilmById(Integer id) {
         return Optional.ofNullable(films.get(id));
     }
 
     @Override
-    public void like(Integer filmId, Integer userId) {
+    public Optional<EntityVersion> getFilmVersion(Integer id) {
+        return Optional.ofNullable(versions.get(id));
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> ids) {
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean existsById(Integer id) {
+        return films.containsKey(id);
+    }
+
+    @Override
+    public boolean like(Integer filmId, Integer userId) {
         Film film = films.get(filmId);
-        film.getLikes().add(userId);
+        if (!film.getLikes().add(userId)) {
+            return false;
+        }
+        leaderboard.increment(filmId);
+        touch(filmId);
+        return true;
     }
 
     @Override
-    public void unLike(Integer filmId, Integer userId) {
+    public boolean unLike(Integer filmId, Integer userId) {
         Film film = films.get(filmId);
-        film.getLikes().remove(userId);
+        if (!film.getLikes().remove(userId)) {
+            return false;
+        }
+        leaderboard.decrement(filmId);
+        touch(filmId);
+        return true;
     }
 
     @Override
     public Collection<Film> getMostPopulars(Integer amount) {
-        Comparator<Film> comparator = (o1, o2) -> Integer.compare(o2.getLikes().size(), o1.getLikes().size());
-        return films.values().stream()
-                .sorted(comparator)
-                .limit(amount)
+        return getMostPopulars(amount, null, null, null);
+    }
+
+    @Override
+    public Collection<Film> getMostPopulars(Integer amount, Integer genreId, Integer mpaId, Integer year) {
+        return leaderboard.top(amount, id -> matches(films.get(id), genreId, mpaId, year)).stream()
+                .map(films::get)
                 .collect(Collectors.toList());
     }
 
+    private boolean matches(Film film, Integer genreId, Integer mpaId, Integer year) {
+        if (genreId != null && (film.getGenres() == null
+                || film.getGenres().stream().noneMatch(genre -> genreId.equals(genre.getId())))) {
+            return false;
+        }
+        if (mpaId != null && (film.getMpa() == null || !mpaId.equals(film.getMpa().getId()))) {
+            return false;
+        }
+        return year == null || film.getReleaseDate() != null && film.getReleaseDate().getYear() == year;
+    }
+
+    private void touch(Integer id) {
+        touch(id, false);
+    }
+
+    private void touch(Integer id, boolean contentChanged) {
+        EntityVersion current = versions.get(id);
+        EntityVersion next = current == null
+                ? new EntityVersion(0L, 0L, Instant.now())
+                : new EntityVersion(current.getVersion() + 1, current.getContentVersion() + (contentChanged ? 1 : 0),
+                Instant.now());
+        versions.put(id, next);
+        films.get(id).setVersion(next);
+    }
+
     private Integer getNextId() {
-        int currentMaxId = films.keySet()
-                .stream()
-                .mapToInt(id -> id)
-                .max()
-                .orElse(0);
+        int currentMaxId = films.isEmpty() ? 0 : films.lastKey();
         return ++currentMaxId;
     }
 }
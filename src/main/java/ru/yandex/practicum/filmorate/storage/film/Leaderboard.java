@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Счётчики лайков фильмов, упорядоченные по убыванию счётчика, а при равенстве — по возрастанию id.
+ * Изменение счётчика стоит O(log n), чтение первых k фильмов — O(k + log n).
+ */
+public class Leaderboard {
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::score).reversed()
+            .thenComparingInt(Entry::id);
+
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> ranking = new TreeSet<>(ORDER);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void add(int id) {
+        lock.writeLock().lock();
+        try {
+            if (!entries.containsKey(id)) {
+                put(new Entry(id, 0));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void set(int id, int score) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(id);
+            put(new Entry(id, score));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void increment(int id) {
+        change(id, 1);
+    }
+
+    public void decrement(int id) {
+        change(id, -1);
+    }
+
+    public int score(int id) {
+        lock.readLock().lock();
+        try {
+            Entry entry = entries.get(id);
+            return entry == null ? 0 : entry.score();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(int id) {
+        lock.readLock().lock();
+        try {
+            return entries.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Integer> top(int amount) {
+        return top(amount, id -> true);
+    }
+
+    /**
+     * Первые amount фильмов рейтинга, прошедших фильтр; рейтинг просматривается, пока их не наберётся amount.
+     */
+    public List<Integer> top(int amount, IntPredicate filter) {
+        lock.readLock().lock();
+        try {
+            List<Integer> ids = new ArrayList<>(Math.min(amount, ranking.size()));
+            Iterator<Entry> iterator = ranking.iterator();
+            while (ids.size() < amount && iterator.hasNext()) {
+                int id = iterator.next().id();
+                if (filter.test(id)) {
+                    ids.add(id);
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void change(int id, int delta) {
+        lock.writeLock().lock();
+        try {
+            Entry old = removeEntry(id);
+            int score = old == null ? 0 : old.score();
+            put(new Entry(id, Math.max(0, score + delta)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(Entry entry) {
+        entries.put(entry.id(), entry);
+        ranking.add(entry);
+    }
+
+    private Entry removeEntry(int id) {
+        Entry old = entries.remove(id);
+        if (old != null) {
+            ranking.remove(old);
+        }
+        return old;
+    }
+
+    private record Entry(int id, int score) {
+    }
+}
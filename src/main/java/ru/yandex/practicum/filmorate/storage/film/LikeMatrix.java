@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.storage.SortedIntArrays;
+import ru.yandex.practicum.filmorate.storage.TwoHopWalk;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Разреженная матрица лайков: для каждого юзера — отсортированный массив лайкнутых фильмов,
+ * для каждого фильма — отсортированный массив лайкнувших юзеров.
+ * Рекомендации строятся по ближайшим соседям юзера с мерой Жаккара.
+ */
+public class LikeMatrix {
+    public static final int DEFAULT_NEIGHBOURS = 20;
+    public static final int DEFAULT_FAN_OUT = 200;
+    public static final int DEFAULT_MAX_VISITED = 20_000;
+
+    private static final int[] EMPTY = SortedIntArrays.EMPTY;
+    private static final Comparator<Score> BEST_FIRST = Comparator.comparingDouble(Score::value).reversed()
+            .thenComparingInt(Score::id);
+
+    private final Map<Integer, int[]> filmsByUser = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> usersByFilm = new ConcurrentHashMap<>();
+
+    public synchronized boolean add(int userId, int filmId) {
+        int[] films = filmsByUser.getOrDefault(userId, EMPTY);
+        int[] updated = SortedIntArrays.insert(films, filmId);
+        if (updated == films) {
+            return false;
+        }
+        filmsByUser.put(userId, updated);
+        usersByFilm.put(filmId, SortedIntArrays.insert(usersByFilm.getOrDefault(filmId, EMPTY), userId));
+        return true;
+    }
+
+    public synchronized boolean remove(int userId, int filmId) {
+        int[] films = filmsByUser.getOrDefault(userId, EMPTY);
+        int[] updated = SortedIntArrays.remove(films, filmId);
+        if (updated == films) {
+            return false;
+        }
+        put(filmsByUser, userId, updated);
+        put(usersByFilm, filmId, SortedIntArrays.remove(usersByFilm.getOrDefault(filmId, EMPTY), userId));
+        return true;
+    }
+
+    public synchronized void removeFilm(int filmId) {
+        int[] users = usersByFilm.remove(filmId);
+        if (users != null) {
+            for (int userId : users) {
+                put(filmsByUser, userId, SortedIntArrays.remove(filmsByUser.getOrDefault(userId, EMPTY), filmId));
+            }
+        }
+    }
+
+    public synchronized void removeUser(int userId) {
+        int[] films = filmsByUser.remove(userId);
+        if (films != null) {
+            for (int filmId : films) {
+                put(usersByFilm, filmId, SortedIntArrays.remove(usersByFilm.getOrDefault(filmId, EMPTY), userId));
+            }
+        }
+    }
+
+    /**
+     * Фильмы, которые лайкнули ближайшие по Жаккару соседи юзера и не лайкнул он сам,
+     * по убыванию суммарной близости лайкнувших соседей.
+     * Соседи не хранятся заранее, а ищутся на каждый запрос через лайкнувших те же фильмы:
+     * с каждого фильма берётся не больше fanOut юзеров, всего просматривается не больше maxVisited лайков.
+     */
+    public int[] recommend(int userId, int limit, int neighbours, int fanOut, int maxVisited) {
+        int[] own = filmsByUser.getOrDefault(userId, EMPTY);
+        if (own.length == 0) {
+            return EMPTY;
+        }
+        PriorityQueue<Score> nearest = new PriorityQueue<>(BEST_FIRST.reversed());
+        TwoHopWalk.countPaths(own, filmId -> usersByFilm.getOrDefault(filmId, EMPTY), otherId -> otherId == userId,
+                fanOut, maxVisited, (otherId, overlap) -> {
+                    int otherLikes = filmsByUser.getOrDefault(otherId, EMPTY).length;
+                    double similarity = (double) overlap / (own.length + otherLikes - overlap);
+                    offer(nearest, new Score(otherId, similarity), neighbours);
+                });
+
+        Map<Integer, Double> scores = new HashMap<>();
+        for (Score neighbour : nearest) {
+            for (int filmId : filmsByUser.getOrDefault(neighbour.id(), EMPTY)) {
+                if (!SortedIntArrays.contains(own, filmId)) {
+                    scores.merge(filmId, neighbour.value(), Double::sum);
+                }
+            }
+        }
+        PriorityQueue<Score> top = new PriorityQueue<>(BEST_FIRST.reversed());
+        scores.forEach((filmId, score) -> offer(top, new Score(filmId, score), limit));
+
+        List<Score> ordered = new ArrayList<>(top);
+        ordered.sort(BEST_FIRST);
+        return ordered.stream().mapToInt(Score::id).toArray();
+    }
+
+    public int usersCount() {
+        return filmsByUser.size();
+    }
+
+    private static void offer(PriorityQueue<Score> worstFirst, Score score, int limit) {
+        if (worstFirst.size() < limit) {
+            worstFirst.add(score);
+        } else if (BEST_FIRST.compare(score, worstFirst.peek()) < 0) {
+            worstFirst.poll();
+            worstFirst.add(score);
+        }
+    }
+
+    private static void put(Map<Integer, int[]> map, int key, int[] ids) {
+        if (ids.length == 0) {
+            map.remove(key);
+        } else {
+            map.put(key, ids);
+        }
+    }
+
+    private record Score(int id, double value) {
+    }
+}
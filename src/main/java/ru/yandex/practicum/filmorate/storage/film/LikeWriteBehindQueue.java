@@ -0,0 +1,201 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.event.FilmLikeEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Отложенная запись лайков: последнее состояние каждой пары (фильм, юзер) копится в памяти
+ * и раз в flush-interval-ms сбрасывается в базу пакетами. Включается свойством
+ * filmorate.likes.write-behind.enabled.
+ */
+@Slf4j
+@Component
+public class LikeWriteBehindQueue {
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final long flushIntervalMs;
+    private final int capacity;
+    private final int batchSize;
+
+    private final ConcurrentHashMap<LikeKey, Boolean> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public LikeWriteBehindQueue(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                                @Value("${filmorate.likes.write-behind.flush-interval-ms:200}") long flushIntervalMs,
+                                @Value("${filmorate.likes.write-behind.capacity:10000}") int capacity,
+                                @Value("${filmorate.likes.write-behind.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.flushIntervalMs = flushIntervalMs;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "like-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Отложенная запись лайков включена, интервал: {} мс, ёмкость очереди: {}", flushIntervalMs, capacity);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(flushIntervalMs * 2, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean like(int filmId, int userId) {
+        return enqueue(new LikeKey(filmId, userId), true);
+    }
+
+    public boolean unLike(int filmId, int userId) {
+        return enqueue(new LikeKey(filmId, userId), false);
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Map.Entry<LikeKey, Boolean>> snapshot = new ArrayList<>(pending.size());
+            pending.forEach((key, liked) -> snapshot.add(Map.entry(key, liked)));
+            for (int from = 0; from < snapshot.size(); from += batchSize) {
+                List<Map.Entry<LikeKey, Boolean>> chunk = snapshot.subList(from, Math.min(from + batchSize, snapshot.size()));
+                List<FilmLikeEvent> events = writeChunk(chunk);
+                chunk.forEach(entry -> pending.remove(entry.getKey(), entry.getValue()));
+                events.forEach(eventPublisher::publishEvent);
+            }
+            if (!snapshot.isEmpty()) {
+                log.debug("Сброшено лайков: {}", snapshot.size());
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private boolean enqueue(LikeKey key, boolean liked) {
+        if (pending.size() >= capacity && !pending.containsKey(key)) {
+            log.info("Очередь лайков заполнена, сбрасываем синхронно");
+            flush();
+        }
+        boolean[] changed = new boolean[1];
+        pending.compute(key, (k, state) -> {
+            boolean current = state != null ? state : isStored(k);
+            changed[0] = current != liked;
+            return changed[0] ? Boolean.valueOf(liked) : state;
+        });
+        return changed[0];
+    }
+
+    private boolean isStored(LikeKey key) {
+        String query = "SELECT EXISTS(SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(query, Boolean.class, key.filmId(), key.userId()));
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Не удалось сбросить очередь лайков", e);
+        }
+    }
+
+    private List<FilmLikeEvent> writeChunk(List<Map.Entry<LikeKey, Boolean>> chunk) {
+        try {
+            return transactionTemplate.execute(status -> writeBatch(chunk));
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Пакет лайков не записан, пишем по одному: {}", e.getMessage());
+        }
+        List<FilmLikeEvent> events = new ArrayList<>();
+        for (Map.Entry<LikeKey, Boolean> entry : chunk) {
+            try {
+                events.addAll(transactionTemplate.execute(status -> writeBatch(List.of(entry))));
+            } catch (DataIntegrityViolationException e) {
+                log.warn("Лайк фильму {} от юзера {} отброшен: {}",
+                        entry.getKey().filmId(), entry.getKey().userId(), e.getMessage());
+            }
+        }
+        return events;
+    }
+
+    private List<FilmLikeEvent> writeBatch(List<Map.Entry<LikeKey, Boolean>> entries) {
+        List<LikeKey> toInsert = new ArrayList<>();
+        List<LikeKey> toDelete = new ArrayList<>();
+        entries.forEach(entry -> (entry.getValue() ? toInsert : toDelete).add(entry.getKey()));
+
+        List<FilmLikeEvent> events = new ArrayList<>();
+        collectChanged(FilmDbStorage.INSERT_LIKE_QUERY, toInsert, true, events);
+        collectChanged(FilmDbStorage.DELETE_LIKE_QUERY, toDelete, false, events);
+        List<Integer> touched = events.stream().map(FilmLikeEvent::getFilmId).distinct().toList();
+        jdbcTemplate.batchUpdate(FilmDbStorage.TOUCH_FILM_QUERY, touched, touched.size(),
+                (ps, filmId) -> ps.setInt(1, filmId));
+        return events;
+    }
+
+    private void collectChanged(String query, List<LikeKey> keys, boolean liked, List<FilmLikeEvent> events) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(query, keys, keys.size(), (ps, key) -> {
+            ps.setInt(1, key.filmId());
+            ps.setInt(2, key.userId());
+        });
+        int[] rows = counts[0];
+        for (int i = 0; i < keys.size(); i++) {
+            if (rows[i] != 0) {
+                events.add(new FilmLikeEvent(keys.get(i).filmId(), keys.get(i).userId(), liked));
+            }
+        }
+    }
+
+    private record LikeKey(int filmId, int userId) {
+    }
+}
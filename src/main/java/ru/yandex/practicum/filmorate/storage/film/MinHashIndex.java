@@ -0,0 +1,262 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.storage.SortedIntArrays;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Приближённое сходство фильмов по множествам лайкнувших юзеров: MinHash-сигнатура из bands * rows хешей
+ * и LSH-корзины по полосам из rows хешей. Больше полос — выше полнота, длиннее полоса — выше точность;
+ * на каждый фильм уходит bands * rows чисел сигнатуры.
+ */
+public class MinHashIndex {
+    public static final int DEFAULT_BANDS = 16;
+    public static final int DEFAULT_ROWS = 4;
+
+    private static final long SEED = 0x5DEECE66DL;
+
+    private final int bands;
+    private final int rows;
+    private final long[] seeds;
+    private final Map<Integer, int[]> likers = new HashMap<>();
+    private final Map<Integer, int[]> signatures = new HashMap<>();
+    private final Map<Integer, long[]> bandKeys = new HashMap<>();
+    private final List<Map<Long, Set<Integer>>> buckets = new ArrayList<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public MinHashIndex(int bands, int rows) {
+        if (bands <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("Количество полос и строк в полосе должно быть больше 0");
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.seeds = new Random(SEED).longs((long) bands * rows).toArray();
+        for (int i = 0; i < bands; i++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    public void put(int filmId, int[] users) {
+        lock.writeLock().lock();
+        try {
+            if (users.length == 0) {
+                likers.remove(filmId);
+            } else {
+                likers.put(filmId, users);
+            }
+            reindex(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean add(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            int[] users = likers.getOrDefault(filmId, SortedIntArrays.EMPTY);
+            int[] updated = SortedIntArrays.insert(users, userId);
+            if (updated == users) {
+                return false;
+            }
+            likers.put(filmId, updated);
+            int[] signature = signatures.get(filmId);
+            if (signature == null) {
+                reindex(filmId);
+                return true;
+            }
+            boolean changed = false;
+            for (int i = 0; i < seeds.length; i++) {
+                int hash = hash(seeds[i], userId);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                    changed = true;
+                }
+            }
+            if (changed) {
+                unbucket(filmId);
+                bucket(filmId, signature);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            return removeLike(filmId, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        lock.writeLock().lock();
+        try {
+            likers.remove(filmId);
+            reindex(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(int userId) {
+        lock.writeLock().lock();
+        try {
+            for (Integer filmId : new ArrayList<>(likers.keySet())) {
+                removeLike(filmId, userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Фильмы из тех же LSH-корзин по убыванию оценки сходства Жаккара, при равенстве — по возрастанию id.
+     */
+    public List<Integer> similar(int filmId, int limit) {
+        lock.readLock().lock();
+        try {
+            long[] keys = bandKeys.get(filmId);
+            if (keys == null) {
+                return new ArrayList<>();
+            }
+            Set<Integer> candidates = new HashSet<>();
+            for (int band = 0; band < bands; band++) {
+                candidates.addAll(buckets.get(band).getOrDefault(keys[band], Set.of()));
+            }
+            candidates.remove(filmId);
+
+            int[] signature = signatures.get(filmId);
+            Map<Integer, Double> estimates = new HashMap<>();
+            for (Integer candidate : candidates) {
+                estimates.put(candidate, estimate(signature, signatures.get(candidate)));
+            }
+            return estimates.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Double>comparingByValue(Comparator.reverseOrder())
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(limit)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public double estimateSimilarity(int filmId, int otherId) {
+        lock.readLock().lock();
+        try {
+            int[] signature = signatures.get(filmId);
+            int[] other = signatures.get(otherId);
+            return signature == null || other == null ? 0 : estimate(signature, other);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return signatures.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean removeLike(int filmId, int userId) {
+        int[] users = likers.get(filmId);
+        if (users == null) {
+            return false;
+        }
+        int[] updated = SortedIntArrays.remove(users, userId);
+        if (updated == users) {
+            return false;
+        }
+        if (updated.length == 0) {
+            likers.remove(filmId);
+        } else {
+            likers.put(filmId, updated);
+        }
+        reindex(filmId);
+        return true;
+    }
+
+    private void reindex(int filmId) {
+        unbucket(filmId);
+        int[] users = likers.get(filmId);
+        if (users == null) {
+            signatures.remove(filmId);
+            return;
+        }
+        int[] signature = new int[seeds.length];
+        for (int i = 0; i < seeds.length; i++) {
+            int min = Integer.MAX_VALUE;
+            for (int userId : users) {
+                min = Math.min(min, hash(seeds[i], userId));
+            }
+            signature[i] = min;
+        }
+        signatures.put(filmId, signature);
+        bucket(filmId, signature);
+    }
+
+    private void bucket(int filmId, int[] signature) {
+        long[] keys = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            long key = band;
+            for (int row = 0; row < rows; row++) {
+                key = key * 0x100000001B3L + signature[band * rows + row];
+            }
+            keys[band] = key;
+            buckets.get(band).computeIfAbsent(key, k -> new HashSet<>()).add(filmId);
+        }
+        bandKeys.put(filmId, keys);
+    }
+
+    private void unbucket(int filmId) {
+        long[] keys = bandKeys.remove(filmId);
+        if (keys == null) {
+            return;
+        }
+        for (int band = 0; band < bands; band++) {
+            Map<Long, Set<Integer>> bandBuckets = buckets.get(band);
+            Set<Integer> bucket = bandBuckets.get(keys[band]);
+            if (bucket != null) {
+                bucket.remove(filmId);
+                if (bucket.isEmpty()) {
+                    bandBuckets.remove(keys[band]);
+                }
+            }
+        }
+    }
+
+    private static double estimate(int[] signature, int[] other) {
+        int equal = 0;
+        for (int i = 0; i < signature.length; i++) {
+            if (signature[i] == other[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / signature.length;
+    }
+
+    private static int hash(long seed, int value) {
+        long h = seed ^ (value * 0x9E3779B97F4A7C15L);
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB93C185CE4E5L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.storage.SortedIntArrays;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Общий рейтинг популярности и отдельные рейтинги для каждого жанра, рейтинга MPA и года выхода.
+ * Лайк меняет счётчик фильма во всех его рейтингах, поэтому первые k фильмов жанра читаются так же быстро,
+ * как и общий топ. При нескольких условиях просматривается самый короткий из подходящих рейтингов.
+ */
+public class ScopedLeaderboard {
+    private final Leaderboard global = new Leaderboard();
+    private final Map<Integer, Leaderboard> byGenre = new ConcurrentHashMap<>();
+    private final Map<Integer, Leaderboard> byMpa = new ConcurrentHashMap<>();
+    private final Map<Integer, Leaderboard> byYear = new ConcurrentHashMap<>();
+    private final Map<Integer, Scope> scopes = new ConcurrentHashMap<>();
+
+    public synchronized void put(int filmId, Collection<Integer> genreIds, Integer mpaId, Integer year, int score) {
+        removeFilm(filmId);
+        Scope scope = new Scope(genreIds.stream().filter(Objects::nonNull).mapToInt(Integer::intValue).sorted()
+                .distinct().toArray(), mpaId, year);
+        scopes.put(filmId, scope);
+        global.set(filmId, score);
+        for (Leaderboard leaderboard : leaderboards(scope, true)) {
+            leaderboard.set(filmId, score);
+        }
+    }
+
+    public synchronized void put(int filmId, Collection<Integer> genreIds, Integer mpaId, Integer year) {
+        put(filmId, genreIds, mpaId, year, global.score(filmId));
+    }
+
+    public synchronized void remove(int filmId) {
+        removeFilm(filmId);
+    }
+
+    public synchronized void increment(int filmId) {
+        global.increment(filmId);
+        leaderboards(scopes.get(filmId), false).forEach(leaderboard -> leaderboard.increment(filmId));
+    }
+
+    public synchronized void decrement(int filmId) {
+        global.decrement(filmId);
+        leaderboards(scopes.get(filmId), false).forEach(leaderboard -> leaderboard.decrement(filmId));
+    }
+
+    public int score(int filmId) {
+        return global.score(filmId);
+    }
+
+    public int size() {
+        return global.size();
+    }
+
+    public List<Integer> top(int amount, Integer genreId, Integer mpaId, Integer year) {
+        List<Leaderboard> candidates = new ArrayList<>();
+        if (genreId != null) {
+            candidates.add(byGenre.get(genreId));
+        }
+        if (mpaId != null) {
+            candidates.add(byMpa.get(mpaId));
+        }
+        if (year != null) {
+            candidates.add(byYear.get(year));
+        }
+        if (candidates.isEmpty()) {
+            return global.top(amount);
+        }
+        if (candidates.contains(null)) {
+            return new ArrayList<>();
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0).top(amount);
+        }
+        Leaderboard shortest = candidates.stream().min(Comparator.comparingInt(Leaderboard::size)).get();
+        return shortest.top(amount, filmId -> {
+            Scope scope = scopes.get(filmId);
+            return scope != null && scope.matches(genreId, mpaId, year);
+        });
+    }
+
+    private void removeFilm(int filmId) {
+        Scope scope = scopes.remove(filmId);
+        global.remove(filmId);
+        if (scope == null) {
+            return;
+        }
+        for (int genreId : scope.genreIds()) {
+            removeFrom(byGenre, genreId, filmId);
+        }
+        removeFrom(byMpa, scope.mpaId(), filmId);
+        removeFrom(byYear, scope.year(), filmId);
+    }
+
+    private List<Leaderboard> leaderboards(Scope scope, boolean create) {
+        List<Leaderboard> leaderboards = new ArrayList<>();
+        if (scope == null) {
+            return leaderboards;
+        }
+        for (int genreId : scope.genreIds()) {
+            addLeaderboard(leaderboards, byGenre, genreId, create);
+        }
+        addLeaderboard(leaderboards, byMpa, scope.mpaId(), create);
+        addLeaderboard(leaderboards, byYear, scope.year(), create);
+        return leaderboards;
+    }
+
+    private static void addLeaderboard(List<Leaderboard> leaderboards, Map<Integer, Leaderboard> byKey, Integer key,
+                                       boolean create) {
+        if (key == null) {
+            return;
+        }
+        Leaderboard leaderboard = create ? byKey.computeIfAbsent(key, k -> new Leaderboard()) : byKey.get(key);
+        if (leaderboard != null) {
+            leaderboards.add(leaderboard);
+        }
+    }
+
+    private static void removeFrom(Map<Integer, Leaderboard> byKey, Integer key, int filmId) {
+        if (key == null) {
+            return;
+        }
+        Leaderboard leaderboard = byKey.get(key);
+        if (leaderboard != null) {
+            leaderboard.remove(filmId);
+            if (leaderboard.size() == 0) {
+                byKey.remove(key);
+            }
+        }
+    }
+
+    private record Scope(int[] genreIds, Integer mpaId, Integer year) {
+        boolean matches(Integer genreId, Integer mpaId, Integer year) {
+            return (genreId == null || SortedIntArrays.contains(genreIds, genreId))
+                    && (mpaId == null || mpaId.equals(this.mpaId))
+                    && (year == null || year.equals(this.year));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Трендовость фильмов: сумма весов лайков за последние window мс, вес лайка убывает вдвое за halfLife мс.
+ * Веса хранятся относительно опорного момента как exp(λ(t - epoch)), поэтому с течением времени порядок
+ * фильмов не меняется и при пересчёте учитываются только новые, снятые и выпавшие из окна лайки.
+ * Класс не потокобезопасен.
+ */
+public class TrendingScores {
+    private static final double MAX_EXPONENT = 10;
+
+    private final double lambda;
+    private final long window;
+    private long epoch;
+    private final Map<LikeKey, Long> likedAt = new HashMap<>();
+    private final ArrayDeque<Like> arrivals = new ArrayDeque<>();
+    private final Map<Integer, Score> scores = new HashMap<>();
+
+    public TrendingScores(long halfLife, long window, long now) {
+        if (halfLife <= 0 || window <= 0) {
+            throw new IllegalArgumentException("Период полураспада и окно должны быть больше 0");
+        }
+        this.lambda = Math.log(2) / halfLife;
+        this.window = window;
+        this.epoch = now;
+    }
+
+    public void like(int filmId, int userId, long at) {
+        LikeKey key = new LikeKey(filmId, userId);
+        Long previous = likedAt.put(key, at);
+        if (previous != null) {
+            subtract(filmId, previous);
+        }
+        arrivals.addLast(new Like(key, at));
+        Score score = scores.computeIfAbsent(filmId, id -> new Score());
+        score.weight += weight(at);
+        score.likes++;
+    }
+
+    public void unLike(int filmId, int userId) {
+        Long at = likedAt.remove(new LikeKey(filmId, userId));
+        if (at != null) {
+            subtract(filmId, at);
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        if (scores.remove(filmId) != null) {
+            likedAt.keySet().removeIf(key -> key.filmId() == filmId);
+        }
+    }
+
+    public void removeUser(int userId) {
+        likedAt.entrySet().removeIf(entry -> {
+            if (entry.getKey().userId() != userId) {
+                return false;
+            }
+            subtract(entry.getKey().filmId(), entry.getValue());
+            return true;
+        });
+    }
+
+    /**
+     * Убирает лайки старше окна и при необходимости переносит опорный момент, чтобы веса не переполнились.
+     */
+    public void advance(long now) {
+        long cutoff = now - window;
+        while (!arrivals.isEmpty() && arrivals.peekFirst().at() < cutoff) {
+            Like like = arrivals.pollFirst();
+            if (likedAt.remove(like.key(), like.at())) {
+                subtract(like.key().filmId(), like.at());
+            }
+        }
+        if (lambda * (now - epoch) > MAX_EXPONENT) {
+            epoch = now;
+            scores.clear();
+            likedAt.forEach((key, at) -> {
+                Score score = scores.computeIfAbsent(key.filmId(), id -> new Score());
+                score.weight += weight(at);
+                score.likes++;
+            });
+        }
+    }
+
+    public double score(int filmId, long now) {
+        Score score = scores.get(filmId);
+        return score == null ? 0 : score.weight * Math.exp(-lambda * (now - epoch));
+    }
+
+    public List<Integer> top(int amount) {
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Score>comparingByValue(
+                                Comparator.comparingDouble((Score score) -> score.weight).reversed())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(amount)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    public int size() {
+        return scores.size();
+    }
+
+    private void subtract(int filmId, long at) {
+        Score score = scores.get(filmId);
+        if (score == null) {
+            return;
+        }
+        if (--score.likes == 0) {
+            scores.remove(filmId);
+        } else {
+            score.weight -= weight(at);
+        }
+    }
+
+    private double weight(long at) {
+        return Math.exp(lambda * (at - epoch));
+    }
+
+    private static final class Score {
+        private double weight;
+        private int likes;
+    }
+
+    private record LikeKey(int filmId, int userId) {
+    }
+
+    private record Like(LikeKey key, long at) {
+    }
+}
@@ -1,10 +1,9 @@
 package ru.yandex.practicum.filmorate.storage.genre;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,27 +11,20 @@ import java.util.Optional;
 @Slf4j
 @Repository
 public class GenreDbStorage implements GenreStorage {
-    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceDataCache;
 
-    public GenreDbStorage(JdbcTemplate jdbcTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
+    public GenreDbStorage(ReferenceDataCache referenceDataCache) {
+        this.referenceDataCache = referenceDataCache;
     }
 
     @Override
     public Optional<Genre> getGenreById(Integer id) {
-        String query = "SELECT * FROM genre WHERE id = ?";
-        try {
-            Genre result = jdbcTemplate.queryForObject(query, new GenreRowMapper(), id);
-            return Optional.ofNullable(result);
-        } catch (EmptyResultDataAccessException ignored) {
-            return Optional.empty();
-        }
+        return referenceDataCache.getGenreById(id);
     }
 
     @Override
     public List<Genre> getAllGenres() {
-        String query = "SELECT * FROM genre ORDER BY id";
-        return jdbcTemplate.query(query, new GenreRowMapper());
+        return referenceDataCache.getAllGenres();
     }
 
 }
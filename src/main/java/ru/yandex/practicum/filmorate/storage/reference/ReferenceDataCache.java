@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.storage.reference;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.genre.GenreRowMapper;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaRowMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Снимок справочников рейтингов MPA и жанров в памяти. Справочники заполняются data.sql и во время работы
+ * приложения не меняются — API для их изменения нет, поэтому снимок загружается один раз при старте.
+ * Если таблицы mpa или genre правят в обход приложения, после этого нужно вызвать refresh().
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataCache {
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of(), digest(Map.of(), Map.of()));
+
+    @PostConstruct
+    public void refresh() {
+        Map<Integer, Mpa> mpa = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT * FROM mpa ORDER BY id", new MpaRowMapper())
+                .forEach(rating -> mpa.put(rating.getId(), rating));
+        Map<Integer, Genre> genres = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT * FROM genre ORDER BY id", new GenreRowMapper())
+                .forEach(genre -> genres.put(genre.getId(), genre));
+        snapshot = new Snapshot(Collections.unmodifiableMap(mpa), Collections.unmodifiableMap(genres),
+                digest(mpa, genres));
+        log.info("Загружены справочники: mpa - {}, жанров - {}", mpa.size(), genres.size());
+    }
+
+    public Optional<Mpa> getMpaById(Integer id) {
+        return Optional.ofNullable(snapshot.mpa().get(id))
+                .map(mpa -> new Mpa(mpa.getId(), mpa.getName()));
+    }
+
+    public List<Mpa> getAllMpa() {
+        return snapshot.mpa().values().stream()
+                .map(mpa -> new Mpa(mpa.getId(), mpa.getName()))
+                .collect(Collectors.toList());
+    }
+
+    public Optional<Genre> getGenreById(Integer id) {
+        return Optional.ofNullable(snapshot.genres().get(id))
+                .map(genre -> new Genre(genre.getId(), genre.getName()));
+    }
+
+    public List<Genre> getAllGenres() {
+        return snapshot.genres().values().stream()
+                .map(genre -> new Genre(genre.getId(), genre.getName()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * SHA-256 от содержимого справочников: меняется вместе с любым рейтингом или жанром и одинаков на всех узлах,
+     * поэтому годится как сильный ETag для ответов /genres и /mpa.
+     */
+    public String digest() {
+        return snapshot.digest();
+    }
+
+    private static String digest(Map<Integer, Mpa> mpa, Map<Integer, Genre> genres) {
+        StringBuilder content = new StringBuilder();
+        mpa.values().forEach(rating -> content.append("mpa:").append(rating.getId()).append('=')
+                .append(rating.getName()).append('\n'));
+        genres.values().forEach(genre -> content.append("genre:").append(genre.getId()).append('=')
+                .append(genre.getName()).append('\n'));
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(content.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Snapshot(Map<Integer, Mpa> mpa, Map<Integer, Genre> genres, String digest) {
+    }
+}
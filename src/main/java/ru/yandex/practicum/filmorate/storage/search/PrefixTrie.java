@@ -0,0 +1,308 @@
+package ru.yandex.practicum.filmorate.storage.search;
+
+import ru.yandex.practicum.filmorate.storage.SortedIntArrays;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Префиксное дерево строк с целочисленными id. В каждом узле хранится кэш лучших cachedTop id поддерева
+ * по убыванию очков, а при равенстве — по возрастанию id, поэтому подсказка для префикса — это спуск по дереву.
+ * Рост очков обновляет кэши на пути за O(длина ключа * cachedTop); падение очков или удаление помечает кэш
+ * устаревшим, и при следующем запросе он собирается заново из своих id и кэшей прямых потомков через кучу
+ * размера cachedTop, без обхода всего поддерева. Подсказок больше cachedTop дерево не выдаёт.
+ */
+public class PrefixTrie {
+    public static final int DEFAULT_CACHED_TOP = 20;
+
+    private final int cachedTop;
+    private final Node root = new Node();
+    private final Map<Integer, String> texts = new HashMap<>();
+    private final Map<Integer, String> keys = new HashMap<>();
+    private final Map<Integer, Integer> scores = new HashMap<>();
+    private final Comparator<Integer> ranking = Comparator.<Integer>comparingInt(id -> scores.getOrDefault(id, 0))
+            .reversed()
+            .thenComparingInt(id -> id);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public PrefixTrie() {
+        this(DEFAULT_CACHED_TOP);
+    }
+
+    public PrefixTrie(int cachedTop) {
+        this.cachedTop = cachedTop;
+    }
+
+    public void put(int id, String text, int score) {
+        lock.writeLock().lock();
+        try {
+            scores.put(id, score);
+            putKey(id, text);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(int id, String text) {
+        lock.writeLock().lock();
+        try {
+            putKey(id, text);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeKey(id);
+            scores.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void adjustScore(int id, int delta) {
+        lock.writeLock().lock();
+        try {
+            scores.merge(id, delta, Integer::sum);
+            String key = keys.get(id);
+            if (key == null) {
+                return;
+            }
+            for (Node node : path(key, false)) {
+                if (delta > 0) {
+                    offer(node, id);
+                } else if (containsId(node.top, id)) {
+                    node.dirty = true;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Integer> complete(String prefix, int limit) {
+        String key = normalize(prefix);
+        int bounded = Math.min(limit, cachedTop);
+        lock.readLock().lock();
+        try {
+            Node node = node(key);
+            if (node == null) {
+                return List.of();
+            }
+            if (!node.dirty) {
+                return head(node.top, bounded);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            Node node = node(key);
+            if (node == null) {
+                return List.of();
+            }
+            repair(node);
+            return head(node.top, bounded);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public String text(int id) {
+        lock.readLock().lock();
+        try {
+            return texts.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return keys.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.toLowerCase(Locale.ROOT).replace('ё', 'е').trim().replaceAll("\\s+", " ");
+    }
+
+    private void putKey(int id, String text) {
+        removeKey(id);
+        String key = normalize(text);
+        texts.put(id, text);
+        keys.put(id, key);
+        List<Node> path = path(key, true);
+        Node last = path.get(path.size() - 1);
+        last.ids = SortedIntArrays.insert(last.ids, id);
+        path.forEach(node -> offer(node, id));
+    }
+
+    private void removeKey(int id) {
+        String key = keys.remove(id);
+        texts.remove(id);
+        if (key == null) {
+            return;
+        }
+        List<Node> path = path(key, false);
+        Node last = path.get(path.size() - 1);
+        last.ids = SortedIntArrays.remove(last.ids, id);
+        for (Node node : path) {
+            if (containsId(node.top, id)) {
+                node.dirty = true;
+            }
+        }
+        for (int depth = path.size() - 1; depth > 0; depth--) {
+            Node node = path.get(depth);
+            if (node.ids.length > 0 || node.labels.length > 0) {
+                break;
+            }
+            path.get(depth - 1).removeChild(key.charAt(depth - 1));
+        }
+    }
+
+    private Node node(String key) {
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        return node;
+    }
+
+    private List<Node> path(String key, boolean create) {
+        List<Node> path = new ArrayList<>(key.length() + 1);
+        Node node = root;
+        path.add(node);
+        for (int i = 0; i < key.length(); i++) {
+            Node child = node.child(key.charAt(i));
+            if (child == null) {
+                if (!create) {
+                    return null;
+                }
+                child = node.addChild(key.charAt(i));
+            }
+            node = child;
+            path.add(node);
+        }
+        return path;
+    }
+
+    private void offer(Node node, int id) {
+        if (node.dirty) {
+            return;
+        }
+        List<Integer> top = new ArrayList<>(node.top.length + 1);
+        for (int current : node.top) {
+            if (current != id) {
+                top.add(current);
+            }
+        }
+        top.add(id);
+        top.sort(ranking);
+        node.top = top.stream().limit(cachedTop).mapToInt(Integer::intValue).toArray();
+    }
+
+    private void repair(Node node) {
+        if (!node.dirty) {
+            return;
+        }
+        PriorityQueue<Integer> heap = new PriorityQueue<>(cachedTop + 1, ranking.reversed());
+        for (int id : node.ids) {
+            push(heap, id);
+        }
+        for (Node child : node.children) {
+            repair(child);
+            for (int id : child.top) {
+                push(heap, id);
+            }
+        }
+        int[] top = new int[heap.size()];
+        for (int i = top.length - 1; i >= 0; i--) {
+            top[i] = heap.poll();
+        }
+        node.top = top;
+        node.dirty = false;
+    }
+
+    private void push(PriorityQueue<Integer> heap, int id) {
+        if (heap.size() < cachedTop) {
+            heap.add(id);
+        } else if (ranking.compare(id, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(id);
+        }
+    }
+
+    private static List<Integer> head(int[] ids, int limit) {
+        return Arrays.stream(ids).limit(limit).boxed().toList();
+    }
+
+    private static boolean containsId(int[] ids, int id) {
+        for (int current : ids) {
+            if (current == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Node {
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+        private int[] ids = SortedIntArrays.EMPTY;
+        private int[] top = SortedIntArrays.EMPTY;
+        private boolean dirty;
+
+        Node child(char label) {
+            int position = Arrays.binarySearch(labels, label);
+            return position >= 0 ? children[position] : null;
+        }
+
+        Node addChild(char label) {
+            int insertAt = -Arrays.binarySearch(labels, label) - 1;
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            Node child = new Node();
+            newLabels[insertAt] = label;
+            newChildren[insertAt] = child;
+            System.arraycopy(labels, insertAt, newLabels, insertAt + 1, labels.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            labels = newLabels;
+            children = newChildren;
+            return child;
+        }
+
+        void removeChild(char label) {
+            int position = Arrays.binarySearch(labels, label);
+            if (position < 0) {
+                return;
+            }
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, position);
+            System.arraycopy(children, 0, newChildren, 0, position);
+            System.arraycopy(labels, position + 1, newLabels, position, labels.length - position - 1);
+            System.arraycopy(children, position + 1, newChildren, position, children.length - position - 1);
+            labels = newLabels;
+            children = newChildren;
+        }
+    }
+}
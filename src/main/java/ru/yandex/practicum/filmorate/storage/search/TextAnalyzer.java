@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.storage.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Разбивает русский и английский текст на термы: нижний регистр, ё → е, отбрасывание стоп-слов
+ * и лёгкое отсечение окончаний, чтобы «фильмы» и «фильма», «movies» и «movie» давали один терм.
+ */
+public final class TextAnalyzer {
+    private static final int MIN_STEM_LENGTH = 3;
+    private static final Set<String> STOP_WORDS = Set.of(
+            "и", "в", "во", "не", "на", "с", "со", "о", "об", "по", "за", "из", "от", "до", "к", "ко", "у",
+            "а", "но", "что", "как", "это", "для", "он", "она", "они", "его", "ее", "их", "же", "ли", "бы",
+            "a", "an", "the", "and", "or", "of", "in", "on", "to", "for", "with", "by", "at", "is", "it"
+    );
+    private static final String[] RU_ENDINGS = {
+            "иями", "ями", "ами", "ого", "его", "ому", "ему", "ыми", "ими", "ией", "ей", "ой", "ий", "ый", "ая",
+            "яя", "ое", "ее", "ые", "ие", "ов", "ев", "ам", "ям", "ах", "ях", "ом", "ем", "ию", "ия",
+            "а", "я", "о", "е", "ы", "и", "у", "ю", "ь"
+    };
+    private static final String[] EN_ENDINGS = {"ing", "ed", "s"};
+
+    private TextAnalyzer() {
+    }
+
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean letter = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                String token = normalized.substring(start, i);
+                if (!STOP_WORDS.contains(token)) {
+                    terms.add(stem(token));
+                }
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    static String stem(String token) {
+        String[] endings = isCyrillic(token) ? RU_ENDINGS : EN_ENDINGS;
+        for (String ending : endings) {
+            if (token.endsWith(ending) && token.length() - ending.length() >= MIN_STEM_LENGTH) {
+                return token.substring(0, token.length() - ending.length());
+            }
+        }
+        return token;
+    }
+
+    private static boolean isCyrillic(String token) {
+        return Character.UnicodeBlock.of(token.charAt(0)) == Character.UnicodeBlock.CYRILLIC;
+    }
+}
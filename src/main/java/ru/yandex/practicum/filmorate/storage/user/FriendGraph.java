@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.storage.SortedIntArrays;
+import ru.yandex.practicum.filmorate.storage.TwoHopWalk;
+
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Граф дружбы: для каждого юзера хранится отсортированный массив id друзей.
+ * Массивы не изменяются после публикации, поэтому чтение идёт без блокировок,
+ * а пересечение двух списков — линейное слияние.
+ */
+public class FriendGraph {
+    public static final int DEFAULT_FAN_OUT = 200;
+    public static final int DEFAULT_MAX_VISITED = 20_000;
+
+    private static final int[] EMPTY = SortedIntArrays.EMPTY;
+
+    private final Map<Integer, int[]> adjacency = new ConcurrentHashMap<>();
+
+    public boolean add(int userId, int friendId) {
+        boolean[] changed = new boolean[1];
+        adjacency.compute(userId, (id, friends) -> {
+            int[] current = friends == null ? EMPTY : friends;
+            int[] updated = SortedIntArrays.insert(current, friendId);
+            changed[0] = updated != current;
+            return updated;
+        });
+        return changed[0];
+    }
+
+    public boolean remove(int userId, int friendId) {
+        boolean[] changed = new boolean[1];
+        adjacency.computeIfPresent(userId, (id, friends) -> {
+            int[] updated = SortedIntArrays.remove(friends, friendId);
+            changed[0] = updated != friends;
+            return updated.length == 0 ? null : updated;
+        });
+        return changed[0];
+    }
+
+    public void removeUser(int userId) {
+        adjacency.remove(userId);
+        for (Integer id : adjacency.keySet()) {
+            remove(id, userId);
+        }
+    }
+
+    public int[] friends(int userId) {
+        return adjacency.getOrDefault(userId, EMPTY).clone();
+    }
+
+    public int[] common(int userId, int otherId) {
+        return SortedIntArrays.intersect(adjacency.getOrDefault(userId, EMPTY),
+                adjacency.getOrDefault(otherId, EMPTY));
+    }
+
+    /**
+     * Друзья друзей, которых ещё нет в друзьях, по убыванию числа общих друзей.
+     * С каждой вершины берётся не больше fanOut соседей, всего просматривается не больше maxVisited рёбер.
+     */
+    public int[] suggestions(int userId, int limit, int fanOut, int maxVisited) {
+        int[] friends = adjacency.getOrDefault(userId, EMPTY);
+        // куча растёт по мере надобности, поэтому огромный limit не раздувает её заранее
+        PriorityQueue<Long> top = new PriorityQueue<>(Math.min(limit, 64) + 1);
+        TwoHopWalk.countPaths(friends, friendId -> adjacency.getOrDefault(friendId, EMPTY),
+                candidate -> candidate == userId || SortedIntArrays.contains(friends, candidate),
+                fanOut, maxVisited, (candidate, mutual) -> {
+                    long rank = ((long) mutual << 32) | (Integer.MAX_VALUE - candidate);
+                    if (top.size() < limit) {
+                        top.add(rank);
+                    } else if (rank > top.peek()) {
+                        top.poll();
+                        top.add(rank);
+                    }
+                });
+        int[] result = new int[top.size()];
+        for (int j = result.length - 1; j >= 0; j--) {
+            result[j] = Integer.MAX_VALUE - (int) (top.poll() & 0xFFFFFFFFL);
+        }
+        return result;
+    }
+
+    public int size() {
+        return adjacency.size();
+    }
+}
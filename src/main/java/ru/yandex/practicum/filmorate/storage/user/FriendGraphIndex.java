@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.event.FriendshipEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+
+@Slf4j
+@Component
+public class FriendGraphIndex {
+    private final JdbcTemplate jdbcTemplate;
+    private final int suggestionsFanOut;
+    private final int suggestionsMaxVisited;
+    private volatile FriendGraph graph = new FriendGraph();
+
+    @Autowired
+    public FriendGraphIndex(JdbcTemplate jdbcTemplate,
+                            @Value("${filmorate.friends.suggestions.fan-out:" + FriendGraph.DEFAULT_FAN_OUT + "}")
+                            int suggestionsFanOut,
+                            @Value("${filmorate.friends.suggestions.max-visited:" + FriendGraph.DEFAULT_MAX_VISITED + "}")
+                            int suggestionsMaxVisited) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.suggestionsFanOut = suggestionsFanOut;
+        this.suggestionsMaxVisited = suggestionsMaxVisited;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        FriendGraph rebuilt = new FriendGraph();
+        String query = "SELECT user_id, friend_id FROM friendship";
+        jdbcTemplate.query(query, rs -> {
+            rebuilt.add(rs.getInt("user_id"), rs.getInt("friend_id"));
+        });
+        graph = rebuilt;
+        log.info("Граф дружбы построен, количество юзеров с друзьями: {}", rebuilt.size());
+    }
+
+    public int[] friends(int userId) {
+        return graph.friends(userId);
+    }
+
+    public int[] commonFriends(int userId, int otherId) {
+        return graph.common(userId, otherId);
+    }
+
+    public int[] suggestions(int userId, int limit) {
+        return graph.suggestions(userId, limit, suggestionsFanOut, suggestionsMaxVisited);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFriendship(FriendshipEvent event) {
+        if (event.isAdded()) {
+            graph.add(event.getUserId(), event.getFriendId());
+        } else {
+            graph.remove(event.getUserId(), event.getFriendId());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserDeleted(UserDeletedEvent event) {
+        graph.removeUser(event.getUserId());
+    }
+}
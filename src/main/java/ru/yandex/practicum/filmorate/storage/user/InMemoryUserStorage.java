@@ -1,20 +1,31 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import org.springframework.context.annotation.Fallback;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.VersionConflictException;
+import ru.yandex.practicum.filmorate.model.EntityVersion;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Component
+@Fallback
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Integer, User> users = new HashMap<>();
+    private final TreeMap<Integer, User> users = new TreeMap<>();
+    private final FriendGraph friendGraph = new FriendGraph();
+    private final Map<Integer, EntityVersion> versions = new HashMap<>();
 
     @Override
     public User addUser(User user) {
@@ -26,12 +37,50 @@ public class InMemoryUserStorage implements UserStorage {
         }
         user.setId(getNextId());
         users.put(user.getId(), user);
+        touch(user.getId());
+        user.getFriends().forEach(friendId -> friendGraph.add(user.getId(), friendId));
         return user;
     }
 
+    @Override
+    public Map<Integer, String> addUsers(List<User> newUsers) {
+        Map<Integer, String> rejected = new HashMap<>();
+        Set<String> takenLogins = users.values().stream()
+                .map(User::getLogin)
+                .collect(Collectors.toCollection(HashSet::new));
+        Set<String> takenEmails = users.values().stream()
+                .map(User::getEmail)
+                .collect(Collectors.toCollection(HashSet::new));
+        for (int i = 0; i < newUsers.size(); i++) {
+            User user = newUsers.get(i);
+            if (takenLogins.contains(user.getLogin())) {
+                rejected.put(i, "Логин " + user.getLogin() + " уже используется");
+            } else if (takenEmails.contains(user.getEmail())) {
+                rejected.put(i, "Email " + user.getEmail() + " уже используется");
+            } else {
+                takenLogins.add(user.getLogin());
+                takenEmails.add(user.getEmail());
+                addUser(user);
+            }
+        }
+        return rejected;
+    }
+
     @Override
     public User updateUser(User user) {
+        return updateUser(user, null);
+    }
+
+    @Override
+    public User updateUser(User user, Long expectedVersion) {
         User oldUser = users.get(user.getId());
+        if (oldUser == null) {
+            throw new NotFoundException("Пользователь с id = " + user.getId() + " не найден");
+        }
+        if (expectedVersion != null && !expectedVersion.equals(versions.get(user.getId()).getContentVersion())) {
+            throw new VersionConflictException("Пользователь с id = " + user.getId() + " уже изменён, версия " +
+                    expectedVersion + " устарела");
+        }
 
         oldUser.setEmail(user.getEmail());
         oldUser.setLogin(user.getLogin());
@@ -42,12 +91,18 @@ public class InMemoryUserStorage implements UserStorage {
         }
 
         oldUser.setBirthday(user.getBirthday());
+        touch(oldUser.getId(), true);
         return oldUser;
     }
 
     @Override
     public void deleteUser(Integer id) {
         users.remove(id);
+        versions.remove(id);
+        friendGraph.removeUser(id);
+        users.values().stream()
+                .filter(user -> user.getFriends().remove(id))
+                .forEach(user -> touch(user.getId()));
     }
 
     @Override
@@ -55,51 +110,81 @@ public class InMemoryUserStorage implements UserStorage {
         return users.values();
     }
 
+    @Override
+    public Collection<User> findPage(Integer afterId, Integer limit) {
+        return users.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public Optional<User> getUserById(Integer id) {
         return Optional.ofNullable(users.get(id));
     }
 
     @Override
-    public User addFriend(Integer id, Integer friendId) {
-        User user = users.get(id);
-        user.getFriends().add(friendId);
-        return user;
+    public Optional<EntityVersion> getUserVersion(Integer id) {
+        return Optional.ofNullable(versions.get(id));
     }
 
     @Override
-    public void deleteFriend(Integer id, Integer friendId) {
-        User user = users.get(id);
-        user.getFriends().remove(friendId);
+    public boolean existsById(Integer id) {
+        return users.containsKey(id);
+    }
+
+    @Override
+    public boolean addFriend(Integer id, Integer friendId) {
+        users.get(id).getFriends().add(friendId);
+        touch(id);
+        return friendGraph.add(id, friendId);
+    }
+
+    @Override
+    public boolean deleteFriend(Integer id, Integer friendId) {
+        users.get(id).getFriends().remove(friendId);
+        touch(id);
+        return friendGraph.remove(id, friendId);
     }
 
     @Override
     public Collection<User> getFriends(Integer id) {
-        User user = users.get(id);
-        return user.getFriends().stream()
-                .map(users::get)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+        return toUsers(friendGraph.friends(id));
     }
 
     @Override
     public Collection<User> getCommonFriends(Integer id, Integer friendId) {
-        User user = users.get(id);
-        User friend = users.get(friendId);
-        Set<Integer> intersection = user.getFriends();
-        intersection.retainAll(friend.getFriends());
-        return intersection.stream()
-                .map(users::get)
+        return toUsers(friendGraph.common(id, friendId));
+    }
+
+    @Override
+    public Collection<User> getFriendSuggestions(Integer id, Integer limit) {
+        return toUsers(friendGraph.suggestions(id, limit,
+                FriendGraph.DEFAULT_FAN_OUT, FriendGraph.DEFAULT_MAX_VISITED));
+    }
+
+    private List<User> toUsers(int[] ids) {
+        return Arrays.stream(ids)
+                .mapToObj(users::get)
                 .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
+    private void touch(Integer id) {
+        touch(id, false);
+    }
+
+    private void touch(Integer id, boolean contentChanged) {
+        EntityVersion current = versions.get(id);
+        EntityVersion next = current == null
+                ? new EntityVersion(0L, 0L, Instant.now())
+                : new EntityVersion(current.getVersion() + 1, current.getContentVersion() + (contentChanged ? 1 : 0),
+                Instant.now());
+        versions.put(id, next);
+        users.get(id).setVersion(next);
+    }
+
     private int getNextId() {
-        int currentMaxId = users.keySet()
-                .stream()
-                .mapToInt(id -> id)
-                .max()
-                .orElse(0);
+        int currentMaxId = users.isEmpty() ? 0 : users.lastKey();
         return ++currentMaxId;
     }
 }
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.event.UserSavedEvent;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.storage.search.PrefixTrie;
+
+import java.util.List;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserAutocompleteIndex {
+    private final JdbcTemplate jdbcTemplate;
+    private volatile PrefixTrie trie = new PrefixTrie();
+
+    @PostConstruct
+    public void rebuild() {
+        PrefixTrie rebuilt = new PrefixTrie();
+        String query = "SELECT id, login FROM users";
+        jdbcTemplate.query(query, rs -> {
+            rebuilt.put(rs.getInt("id"), rs.getString("login"));
+        });
+        trie = rebuilt;
+        log.info("Автодополнение логинов построено, количество юзеров: {}", rebuilt.size());
+    }
+
+    public List<Suggestion> complete(String prefix, int limit) {
+        PrefixTrie current = trie;
+        return current.complete(prefix, limit).stream()
+                .map(id -> new Suggestion(id, current.text(id)))
+                .toList();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserSaved(UserSavedEvent event) {
+        trie.put(event.getUser().getId(), event.getUser().getLogin());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserDeleted(UserDeletedEvent event) {
+        trie.remove(event.getUserId());
+    }
+}
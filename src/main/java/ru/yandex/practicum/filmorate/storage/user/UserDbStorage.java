@@ -1,28 +1,48 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.context.annotation.Primary;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.event.FriendshipEvent;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.VersionConflictException;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.event.UserSavedEvent;
+import ru.yandex.practicum.filmorate.model.EntityVersion;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
-import java.sql.Statement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Repository("UserDbStorage")
-@Primary
 @RequiredArgsConstructor
 public class UserDbStorage implements UserStorage {
+    private static final String TOUCH_USER_QUERY = "UPDATE users SET version = version + 1, " +
+            "updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
     private final UserRowMapper userRowMapper;
+    private final FriendGraphIndex friendGraphIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public User addUser(User user) {
@@ -33,7 +53,7 @@ public class UserDbStorage implements UserStorage {
         String query = "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
         GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
         jdbcTemplate.update(connection -> {
-            PreparedStatement ps = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+            PreparedStatement ps = connection.prepareStatement(query, new String[]{"id"});
             ps.setString(1, user.getEmail());
             ps.setString(2, user.getLogin());
             ps.setString(3, user.getName());
@@ -50,33 +70,125 @@ public class UserDbStorage implements UserStorage {
         if (user.getFriends() == null) {
             user.setFriends(new HashSet<>());
         }
-
+        eventPublisher.publishEvent(new UserSavedEvent(user));
         return user;
     }
 
+    @Override
+    @Transactional
+    public Map<Integer, String> addUsers(List<User> users) {
+        Map<Integer, String> rejected = new HashMap<>();
+        if (users.isEmpty()) {
+            return rejected;
+        }
+        Set<String> takenLogins = new HashSet<>();
+        Set<String> takenEmails = new HashSet<>();
+        Map<String, Object> params = Map.of(
+                "logins", users.stream().map(User::getLogin).collect(Collectors.toSet()),
+                "emails", users.stream().map(User::getEmail).collect(Collectors.toSet())
+        );
+        String query = "SELECT login, email FROM users WHERE login IN (:logins) OR email IN (:emails)";
+        namedJdbcTemplate.query(query, params, (ResultSet rs) -> {
+            takenLogins.add(rs.getString("login"));
+            takenEmails.add(rs.getString("email"));
+        });
+
+        List<User> accepted = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (user.getName() == null || user.getName().isBlank()) {
+                user.setName(user.getLogin());
+            }
+            if (takenLogins.contains(user.getLogin())) {
+                rejected.put(i, "Логин " + user.getLogin() + " уже используется");
+            } else if (takenEmails.contains(user.getEmail())) {
+                rejected.put(i, "Email " + user.getEmail() + " уже используется");
+            } else {
+                takenLogins.add(user.getLogin());
+                takenEmails.add(user.getEmail());
+                accepted.add(user);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return rejected;
+        }
+
+        String insertQuery = "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
+        jdbcTemplate.batchUpdate(insertQuery, accepted, accepted.size(), (ps, user) -> {
+            ps.setString(1, user.getEmail());
+            ps.setString(2, user.getLogin());
+            ps.setString(3, user.getName());
+            ps.setDate(4, Date.valueOf(user.getBirthday()));
+        });
+
+        Map<String, Integer> idsByLogin = new HashMap<>();
+        String idsQuery = "SELECT id, login FROM users WHERE login IN (:logins)";
+        Map<String, Object> idsParams = Map.of("logins", accepted.stream().map(User::getLogin).toList());
+        namedJdbcTemplate.query(idsQuery, idsParams, (ResultSet rs) -> {
+            idsByLogin.put(rs.getString("login"), rs.getInt("id"));
+        });
+        for (User user : accepted) {
+            user.setId(idsByLogin.get(user.getLogin()));
+            user.setFriends(new HashSet<>());
+            eventPublisher.publishEvent(new UserSavedEvent(user));
+        }
+        return rejected;
+    }
+
     @Override
     public User updateUser(User user) {
+        return updateUser(user, null);
+    }
+
+    @Override
+    @Transactional
+    public User updateUser(User user, Long expectedVersion) {
         if (user.getName() == null || user.getName().isBlank()) {
             user.setName(user.getLogin());
         }
 
         Integer id = user.getId();
-        String query = "UPDATE USERS SET email = ?, login = ?, name = ?, birthday = ? WHERE id = ?";
-        jdbcTemplate.update(
+        String query = "UPDATE USERS SET email = ?, login = ?, name = ?, birthday = ?, " +
+                "version = version + 1, content_version = content_version + 1, updated_at = CURRENT_TIMESTAMP " +
+                "WHERE id = ? AND (CAST(? AS BIGINT) IS NULL OR content_version = ?)";
+        int rowsUpdated = jdbcTemplate.update(
                 query,
                 user.getEmail(),
                 user.getLogin(),
                 user.getName(),
                 Date.valueOf(user.getBirthday()),
-                id
+                id,
+                expectedVersion,
+                expectedVersion
         );
+        if (rowsUpdated == 0) {
+            if (expectedVersion == null || !existsById(id)) {
+                throw new NotFoundException("Пользователь с id = " + id + " не найден");
+            }
+            throw new VersionConflictException("Пользователь с id = " + id + " уже изменён, версия " +
+                    expectedVersion + " устарела");
+        }
+        // строка заблокирована нашим UPDATE до конца транзакции, поэтому прочитанная версия — ровно наша
+        user.setVersion(getUserVersion(id).orElseThrow());
+        eventPublisher.publishEvent(new UserSavedEvent(user));
         return user;
     }
 
     @Override
+    @Transactional
     public void deleteUser(Integer id) {
+        // после DELETE каскад уже уберёт лайки, а индексам нужно знать, у каких фильмов их стало меньше
+        List<Integer> likedFilmIds = jdbcTemplate.queryForList(
+                "SELECT film_id FROM likes WHERE user_id = ?", Integer.class, id);
+        jdbcTemplate.update("UPDATE films SET version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+                "WHERE id IN (SELECT film_id FROM likes WHERE user_id = ?)", id);
+        jdbcTemplate.update("UPDATE users SET version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+                "WHERE id IN (SELECT user_id FROM friendship WHERE friend_id = ?)", id);
         String query = "DELETE FROM users WHERE id = ?";
         int rowsDeleted = jdbcTemplate.update(query, id);
+        if (rowsDeleted > 0) {
+            eventPublisher.publishEvent(new UserDeletedEvent(id, likedFilmIds));
+        }
     }
 
     @Override
@@ -85,17 +197,21 @@ public class UserDbStorage implements UserStorage {
         return jdbcTemplate.query(query, userRowMapper);
     }
 
+    @Override
+    public List<User> findPage(Integer afterId, Integer limit) {
+        String query = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        return jdbcTemplate.query(query, userRowMapper, afterId, limit);
+    }
+
     @Override
     public Optional<User> getUserById(Integer id) {
         String query = "SELECT * FROM users WHERE id = ?";
         try {
             User user = jdbcTemplate.queryForObject(query, userRowMapper, id);
-
-            List<User> friends = getFriends(id);
-            HashSet<Integer> friendsId = (HashSet<Integer>) friends.stream()
-                    .map(user1 -> user1.getId())
-                    .collect(Collectors.toSet());
-            user.setFriends(friendsId);
+            // друзья читаются из базы после строки: граф обновляется только после коммита и может отставать
+            // от уже прочитанной версии, а ETag не должен оказаться новее тела ответа
+            user.setFriends(new HashSet<>(jdbcTemplate.queryForList(
+                    "SELECT friend_id FROM friendship WHERE user_id = ?", Integer.class, id)));
 
             return Optional.ofNullable(user);
         } catch (EmptyResultDataAccessException ignored) {
@@ -104,41 +220,81 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
-    public User addFriend(Integer id, Integer friendId) {
-        String query = "INSERT INTO friendship (user_id, friend_id, status) VALUES (?, ?, ?)";
-        jdbcTemplate.update(query, id, friendId, 1);
+    public Optional<EntityVersion> getUserVersion(Integer id) {
+        String query = "SELECT version, content_version, updated_at FROM users WHERE id = ?";
+        return jdbcTemplate.query(query, (rs, rowNum) -> new EntityVersion(rs.getLong("version"),
+                        rs.getLong("content_version"), rs.getTimestamp("updated_at").toInstant()), id)
+                .stream()
+                .findFirst();
+    }
 
-        Optional<User> user = getUserById(id);
-        if (user.isEmpty()) {
-            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+    @Override
+    @Transactional
+    public boolean addFriend(Integer id, Integer friendId) {
+        String query = "MERGE INTO friendship f " +
+                "USING (SELECT CAST(? AS INTEGER) AS user_id, CAST(? AS INTEGER) AS friend_id) s " +
+                "ON f.user_id = s.user_id AND f.friend_id = s.friend_id " +
+                "WHEN NOT MATCHED THEN INSERT (user_id, friend_id, status) VALUES (s.user_id, s.friend_id, 1)";
+        int rowsInserted;
+        try {
+            rowsInserted = jdbcTemplate.update(query, id, friendId);
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+        if (rowsInserted == 0) {
+            return false;
         }
-        return user.get();
+        jdbcTemplate.update(TOUCH_USER_QUERY, id);
+        eventPublisher.publishEvent(new FriendshipEvent(id, friendId, true));
+        return true;
     }
 
     @Override
-    public void deleteFriend(Integer id, Integer friendId) {
+    public boolean existsById(Integer id) {
+        String query = "SELECT EXISTS(SELECT 1 FROM users WHERE id = ?)";
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(query, Boolean.class, id));
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteFriend(Integer id, Integer friendId) {
         String query = "DELETE FROM friendship WHERE user_id = ? AND friend_id = ?";
-        int rowsDeleted = jdbcTemplate.update(query, id, friendId);
+        if (jdbcTemplate.update(query, id, friendId) == 0) {
+            return false;
+        }
+        jdbcTemplate.update(TOUCH_USER_QUERY, id);
+        eventPublisher.publishEvent(new FriendshipEvent(id, friendId, false));
+        return true;
     }
 
     @Override
     public List<User> getFriends(Integer id) {
-        String query = """
-                SELECT u.* FROM users u
-                JOIN friendship f ON u.id = f.friend_id
-                WHERE f.user_id = ?
-                """;
-        return jdbcTemplate.query(query, userRowMapper, id);
+        return getUsersByIds(friendGraphIndex.friends(id));
     }
 
     @Override
     public List<User> getCommonFriends(Integer id, Integer friendId) {
-        String query = """
-                SELECT u.*  FROM users u
-                JOIN friendship f1 ON u.id = f1.friend_id AND f1.user_id = ?
-                JOIN friendship f2 ON u.id = f2.friend_id AND f2.user_id = ?
-                """;
-        return jdbcTemplate.query(query, userRowMapper, id, friendId);
+        return getUsersByIds(friendGraphIndex.commonFriends(id, friendId));
+    }
+
+    @Override
+    public List<User> getFriendSuggestions(Integer id, Integer limit) {
+        int[] ids = friendGraphIndex.suggestions(id, limit);
+        Map<Integer, User> usersById = getUsersByIds(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return Arrays.stream(ids)
+                .mapToObj(usersById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private List<User> getUsersByIds(int[] ids) {
+        if (ids.length == 0) {
+            return new ArrayList<>();
+        }
+        String query = "SELECT * FROM users WHERE id IN (:ids) ORDER BY id";
+        List<Integer> idList = Arrays.stream(ids).boxed().toList();
+        return namedJdbcTemplate.query(query, Map.of("ids", idList), userRowMapper);
     }
 
 
@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.storage.user;
 
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.EntityVersion;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.sql.ResultSet;
@@ -19,6 +20,8 @@ public class UserRowMapper implements RowMapper<User> {
         user.setLogin(resultSet.getString("login"));
         user.setBirthday(resultSet.getDate("birthday").toLocalDate());
         user.setFriends(new HashSet<>());
+        user.setVersion(new EntityVersion(resultSet.getLong("version"), resultSet.getLong("content_version"),
+                resultSet.getTimestamp("updated_at").toInstant()));
         return user;
     }
 }
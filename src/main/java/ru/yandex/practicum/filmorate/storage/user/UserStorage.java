@@ -1,26 +1,41 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.model.EntityVersion;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface UserStorage {
     User addUser(User user);
 
+    Map<Integer, String> addUsers(List<User> users);
+
     User updateUser(User user);
 
+    User updateUser(User user, Long expectedVersion);
+
     void deleteUser(Integer id);
 
     Collection<User> findAll();
 
+    Collection<User> findPage(Integer afterId, Integer limit);
+
     Optional<User> getUserById(Integer id);
 
-    User addFriend(Integer id, Integer friendId);
+    Optional<EntityVersion> getUserVersion(Integer id);
 
-    void deleteFriend(Integer id, Integer friendId);
+    boolean existsById(Integer id);
+
+    boolean addFriend(Integer id, Integer friendId);
+
+    boolean deleteFriend(Integer id, Integer friendId);
 
     Collection<User> getFriends(Integer id);
 
     Collection<User> getCommonFriends(Integer id, Integer friendId);
+
+    Collection<User> getFriendSuggestions(Integer id, Integer limit);
 }
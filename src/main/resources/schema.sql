@@ -12,7 +12,10 @@ CREATE TABLE IF NOT EXISTS users (
     name 		VARCHAR(255) NOT NULL,
     login 		VARCHAR(127) NOT NULL UNIQUE,
     email 		VARCHAR(255) NOT NULL UNIQUE,
-    birthday 	DATE
+    birthday 	DATE,
+    version     BIGINT NOT NULL DEFAULT 0,
+    content_version BIGINT NOT NULL DEFAULT 0,
+    updated_at  TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
     );
 
 CREATE TABLE IF NOT EXISTS mpa (
@@ -26,7 +29,10 @@ CREATE TABLE IF NOT EXISTS films (
     description   VARCHAR(200) NOT NULL,
     release_date  DATE	  NOT NULL,
     duration      INTEGER NOT NULL,
-    mpa_id        VARCHAR(16) REFERENCES mpa (id) ON DELETE CASCADE
+    mpa_id        VARCHAR(16) REFERENCES mpa (id) ON DELETE CASCADE,
+    version       BIGINT NOT NULL DEFAULT 0,
+    content_version BIGINT NOT NULL DEFAULT 0,
+    updated_at    TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
     );
 
 CREATE TABLE IF NOT EXISTS genre (
@@ -43,6 +49,7 @@ CREATE TABLE IF NOT EXISTS film_genres (
 CREATE TABLE IF NOT EXISTS likes (
     film_id		INTEGER NOT NULL REFERENCES films (id) ON DELETE CASCADE,
     user_id		INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    created_at	TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     PRIMARY KEY (film_id, user_id)
     );
 
@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.event.FilmLikeEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.cache.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CachingFilmStorageTest {
+
+    @Test
+    public void testCachedFilmsAreIsolatedCopies() {
+        FakeFilmDbStorage delegate = new FakeFilmDbStorage();
+        CachingFilmStorage storage = new CachingFilmStorage(delegate, 10, 60000);
+
+        Film first = storage.getFilmById(1).orElseThrow();
+        first.getLikes().add(42);
+        first.getGenres().clear();
+        first.getMpa().setName("изменено");
+        storage.getFilmsByIds(List.of(1, 2)).forEach(film -> film.getLikes().add(42));
+
+        Film second = storage.getFilmById(1).orElseThrow();
+        assertEquals(Set.of(), second.getLikes());
+        assertEquals(1, second.getGenres().size());
+        assertEquals("G", second.getMpa().getName());
+        assertEquals(Set.of(), storage.getFilmsByIds(List.of(2)).get(0).getLikes());
+        assertEquals(2, delegate.loads);
+        assertEquals(3L, storage.cacheStats().getHits());
+    }
+
+    @Test
+    public void testLikeEventAndUpdateInvalidateFilm() {
+        FakeFilmDbStorage delegate = new FakeFilmDbStorage();
+        CachingFilmStorage storage = new CachingFilmStorage(delegate, 10, 60000);
+        storage.getFilmById(1);
+
+        storage.like(1, 7);
+        storage.onFilmLike(new FilmLikeEvent(1, 7, true));
+        assertEquals(Set.of(7), storage.getFilmById(1).orElseThrow().getLikes());
+        assertEquals(2, delegate.loads);
+
+        Film film = storage.getFilmById(1).orElseThrow();
+        film.setName("Новое название");
+        storage.updateFilm(film, null);
+        assertEquals("Новое название", storage.getFilmById(1).orElseThrow().getName());
+        assertEquals(3, delegate.loads);
+    }
+
+    @Test
+    public void testLoadOverlappingInvalidationOfSameFilmIsNotCached() {
+        FakeFilmDbStorage delegate = new FakeFilmDbStorage();
+        CachingFilmStorage storage = new CachingFilmStorage(delegate, 10, 60000);
+
+        delegate.duringLoad = () -> storage.onFilmLike(new FilmLikeEvent(2, 7, true));
+        storage.getFilmById(1);
+        delegate.duringLoad = () -> storage.onFilmLike(new FilmLikeEvent(1, 7, true));
+        storage.getFilmById(1);
+        delegate.duringLoad = () -> {
+        };
+        assertEquals(1, delegate.loads);
+
+        storage.onFilmLike(new FilmLikeEvent(1, 7, true));
+        delegate.duringLoad = () -> storage.onFilmLike(new FilmLikeEvent(1, 8, true));
+        storage.getFilmById(1);
+        delegate.duringLoad = () -> {
+        };
+        storage.getFilmById(1);
+        assertEquals(3, delegate.loads);
+    }
+
+    private static class FakeFilmDbStorage extends FilmDbStorage {
+        private final Map<Integer, Film> films = new HashMap<>();
+        private int loads;
+        private Runnable duringLoad = () -> {
+        };
+
+        FakeFilmDbStorage() {
+            super(new JdbcTemplate(), null, null, null, null, null);
+            films.put(1, film(1));
+            films.put(2, film(2));
+        }
+
+        @Override
+        public Optional<Film> getFilmById(Integer id) {
+            loads++;
+            duringLoad.run();
+            return Optional.ofNullable(films.get(id)).map(FakeFilmDbStorage::copy);
+        }
+
+        @Override
+        public List<Film> getFilmsByIds(List<Integer> ids) {
+            loads++;
+            return ids.stream().map(films::get).map(FakeFilmDbStorage::copy).toList();
+        }
+
+        @Override
+        public Film updateFilm(Film film, Long expectedVersion) {
+            films.put(film.getId(), copy(film));
+            return film;
+        }
+
+        @Override
+        public boolean like(Integer filmId, Integer userId) {
+            return films.get(filmId).getLikes().add(userId);
+        }
+
+        private static Film film(int id) {
+            Film film = new Film();
+            film.setId(id);
+            film.setName("Фильм " + id);
+            film.setDescription("Описание");
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(100);
+            film.setLikes(new HashSet<>());
+            film.setGenres(new LinkedHashSet<>(Set.of(new Genre(1, "Комедия"))));
+            film.setMpa(new Mpa(1, "G"));
+            return film;
+        }
+
+        private static Film copy(Film film) {
+            Film copy = film(film.getId());
+            copy.setName(film.getName());
+            copy.setLikes(new HashSet<>(film.getLikes()));
+            return copy;
+        }
+    }
+}
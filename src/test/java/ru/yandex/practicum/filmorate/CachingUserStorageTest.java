@@ -0,0 +1,140 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.cache.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CachingUserStorageTest {
+
+    @Test
+    public void testCachedUsersAreIsolatedCopies() {
+        FakeUserDbStorage delegate = new FakeUserDbStorage();
+        CachingUserStorage storage = new CachingUserStorage(delegate, 10, 60000);
+
+        User first = storage.getUserById(1).orElseThrow();
+        first.getFriends().add(42);
+        first.setName("изменено");
+
+        User second = storage.getUserById(1).orElseThrow();
+        assertEquals(Set.of(2), second.getFriends());
+        assertEquals("Юзер 1", second.getName());
+        assertEquals(1, delegate.loads);
+        assertEquals(1L, storage.cacheStats().getHits());
+    }
+
+    @Test
+    public void testFriendshipUpdateAndDeleteInvalidateUsers() {
+        FakeUserDbStorage delegate = new FakeUserDbStorage();
+        CachingUserStorage storage = new CachingUserStorage(delegate, 10, 60000);
+        storage.getUserById(1);
+        storage.getUserById(2);
+
+        storage.addFriend(1, 3);
+        assertEquals(Set.of(2, 3), storage.getUserById(1).orElseThrow().getFriends());
+        storage.getUserById(2);
+        assertEquals(3, delegate.loads);
+
+        User user = storage.getUserById(2).orElseThrow();
+        user.setName("Новое имя");
+        storage.updateUser(user, null);
+        assertEquals("Новое имя", storage.getUserById(2).orElseThrow().getName());
+        assertEquals(4, delegate.loads);
+
+        storage.deleteUser(3);
+        storage.getUserById(1);
+        storage.getUserById(2);
+        assertEquals(6, delegate.loads);
+    }
+
+    @Test
+    public void testLoadOverlappingFriendshipChangeIsNotCached() {
+        FakeUserDbStorage delegate = new FakeUserDbStorage();
+        CachingUserStorage storage = new CachingUserStorage(delegate, 10, 60000);
+
+        delegate.duringLoad = () -> storage.deleteFriend(2, 1);
+        storage.getUserById(1);
+        delegate.duringLoad = () -> storage.addFriend(1, 3);
+        storage.getUserById(1);
+        delegate.duringLoad = () -> {
+        };
+        assertEquals(1, delegate.loads);
+
+        delegate.duringLoad = () -> storage.deleteFriend(2, 3);
+        storage.getUserById(2);
+        delegate.duringLoad = () -> {
+        };
+        storage.getUserById(2);
+        assertEquals(3, delegate.loads);
+    }
+
+    private static class FakeUserDbStorage extends UserDbStorage {
+        private final Map<Integer, User> users = new HashMap<>();
+        private int loads;
+        private Runnable duringLoad = () -> {
+        };
+
+        FakeUserDbStorage() {
+            super(null, null, null, null, null);
+            users.put(1, user(1, 2));
+            users.put(2, user(2, 1));
+            users.put(3, user(3));
+        }
+
+        @Override
+        public Optional<User> getUserById(Integer id) {
+            loads++;
+            duringLoad.run();
+            return Optional.ofNullable(users.get(id)).map(FakeUserDbStorage::copy);
+        }
+
+        @Override
+        public User updateUser(User user, Long expectedVersion) {
+            users.put(user.getId(), copy(user));
+            return user;
+        }
+
+        @Override
+        public void deleteUser(Integer id) {
+            users.remove(id);
+            users.values().forEach(user -> user.getFriends().remove(id));
+        }
+
+        @Override
+        public boolean addFriend(Integer id, Integer friendId) {
+            return users.get(id).getFriends().add(friendId);
+        }
+
+        @Override
+        public boolean deleteFriend(Integer id, Integer friendId) {
+            return users.get(id).getFriends().remove(friendId);
+        }
+
+        private static User user(int id, Integer... friends) {
+            User user = new User();
+            user.setId(id);
+            user.setEmail("user" + id + "@yandex.ru");
+            user.setLogin("login" + id);
+            user.setName("Юзер " + id);
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            user.setFriends(new HashSet<>(Set.of(friends)));
+            return user;
+        }
+
+        private static User copy(User user) {
+            User copy = user(user.getId());
+            copy.setName(user.getName());
+            copy.setFriends(new HashSet<>(user.getFriends()));
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.CompressedBitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompressedBitmapTest {
+
+    @Test
+    public void testAndOrAcrossContainers() {
+        CompressedBitmap first = CompressedBitmap.of(1, 5, 70000, 200000);
+        CompressedBitmap second = CompressedBitmap.of(5, 6, 200000);
+
+        assertArrayEquals(new int[]{5, 200000}, first.and(second).toArray());
+        assertEquals(2, first.andCardinality(second));
+        assertArrayEquals(new int[]{1, 5, 6, 70000, 200000}, first.or(second).toArray());
+        assertArrayEquals(new int[]{1, 5, 70000, 200000}, first.toArray());
+    }
+
+    @Test
+    public void testDenseContainerSwitchesRepresentation() {
+        CompressedBitmap even = new CompressedBitmap();
+        CompressedBitmap odd = new CompressedBitmap();
+        for (int i = 0; i < 20000; i++) {
+            even.add(i * 2);
+            odd.add(i * 2 + 1);
+        }
+        assertEquals(20000, even.cardinality());
+        assertTrue(even.and(odd).isEmpty());
+        assertEquals(40000, even.or(odd).cardinality());
+
+        for (int i = 100; i < 20000; i++) {
+            assertTrue(even.remove(i * 2));
+        }
+        assertFalse(even.remove(1));
+        assertEquals(100, even.cardinality());
+        assertTrue(even.contains(198));
+        assertFalse(even.contains(200));
+    }
+
+    @Test
+    public void testPageReturnsIdsAfterCursor() {
+        CompressedBitmap bitmap = CompressedBitmap.of(3, 10, 65535, 65536, 131072);
+
+        assertArrayEquals(new int[]{3, 10}, bitmap.page(0, 2));
+        assertArrayEquals(new int[]{65535, 65536}, bitmap.page(10, 2));
+        assertArrayEquals(new int[]{131072}, bitmap.page(65536, 10));
+        assertArrayEquals(new int[0], bitmap.page(131072, 10));
+    }
+
+    @Test
+    public void testOrOfManyMatchesPairwiseOr() {
+        List<CompressedBitmap> bitmaps = new ArrayList<>();
+        CompressedBitmap expected = new CompressedBitmap();
+        for (int i = 0; i < 10; i++) {
+            CompressedBitmap bitmap = new CompressedBitmap();
+            for (int value = i; value < 100000; value += 10 + i) {
+                bitmap.add(value);
+            }
+            bitmaps.add(bitmap);
+            expected = expected.or(bitmap);
+        }
+        bitmaps.add(CompressedBitmap.of(300000));
+
+        CompressedBitmap union = CompressedBitmap.or(bitmaps);
+        assertArrayEquals(expected.or(CompressedBitmap.of(300000)).toArray(), union.toArray());
+        assertEquals(expected.cardinality() + 1, union.cardinality());
+        assertTrue(CompressedBitmap.or(List.of()).isEmpty());
+        assertArrayEquals(new int[]{1, 5, 6}, CompressedBitmap.or(List.of(CompressedBitmap.of(1, 5),
+                CompressedBitmap.of(5, 6))).toArray());
+    }
+}
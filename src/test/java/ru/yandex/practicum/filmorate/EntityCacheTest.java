@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.CacheStats;
+import ru.yandex.practicum.filmorate.storage.cache.EntityCache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EntityCacheTest {
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        EntityCache<Integer, String> cache = new EntityCache<>("test", 2, 1000);
+        cache.put(1, "one", cache.generation());
+        cache.put(2, "two", cache.generation());
+        assertEquals("one", cache.get(1));
+        cache.put(3, "three", cache.generation());
+
+        assertEquals(null, cache.get(2));
+        assertEquals("one", cache.get(1));
+        assertEquals("three", cache.get(3));
+
+        CacheStats stats = cache.stats();
+        assertEquals(2, stats.getSize());
+        assertEquals(3L, stats.getHits());
+        assertEquals(1L, stats.getMisses());
+        assertEquals(1L, stats.getEvictions());
+    }
+
+    @Test
+    public void testEntriesExpireAfterTtl() {
+        AtomicLong now = new AtomicLong();
+        EntityCache<Integer, String> cache = new EntityCache<>("test", 10, 100, now::get);
+        cache.put(1, "one", cache.generation());
+
+        now.set(99);
+        assertTrue(cache.contains(1));
+        now.set(100);
+        assertFalse(cache.contains(1));
+        assertEquals(null, cache.get(1));
+        assertEquals(1L, cache.stats().getExpirations());
+    }
+
+    @Test
+    public void testLoadStartedBeforeInvalidationIsNotCached() {
+        EntityCache<Integer, String> cache = new EntityCache<>("test", 10, 1000);
+        long generation = cache.generation();
+        cache.invalidate(1);
+        cache.put(1, "stale", generation);
+        assertEquals(null, cache.get(1));
+
+        cache.put(1, "fresh", cache.generation());
+        assertEquals("fresh", cache.get(1));
+        cache.invalidateAll();
+        assertEquals(0, cache.stats().getSize());
+    }
+
+    @Test
+    public void testInvalidationOfOtherKeyDoesNotBlockPut() {
+        EntityCache<Integer, String> cache = new EntityCache<>("test", 2, 1000);
+        long generation = cache.generation();
+        cache.invalidate(2);
+        cache.invalidate(3);
+        cache.put(1, "one", generation);
+        assertEquals("one", cache.get(1));
+
+        // отметка ключа 2 вытеснена отметками 3 и 4 и стала общей нижней границей
+        cache.invalidate(4);
+        cache.put(2, "stale", generation);
+        cache.put(5, "stale", generation);
+        assertEquals(null, cache.get(2));
+        assertEquals(null, cache.get(5));
+        cache.put(5, "five", cache.generation());
+        assertEquals("five", cache.get(5));
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.storage.film.FilmBitmapIndex;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FilmBitmapIndexTest {
+
+    @Test
+    public void testFilterCombinesConditions() {
+        FilmBitmapIndex index = new FilmBitmapIndex();
+        index.put(1, List.of(1, 2), 1, 1985, 100);
+        index.put(2, List.of(2), 3, 1995, 130);
+        index.put(3, List.of(2, 6), 3, 1999, 90);
+        index.put(4, List.of(), 3, 2005, 90);
+
+        assertArrayEquals(new int[]{1, 2, 3, 4}, index.filter(new FilmFilter()).toArray());
+        assertArrayEquals(new int[]{1, 2, 3}, index.filter(FilmFilter.builder().genreId(2).build()).toArray());
+        assertArrayEquals(new int[]{3}, index.filter(FilmFilter.builder()
+                .genreId(2).mpaId(3).yearFrom(1990).yearTo(2000).maxDuration(120).build()).toArray());
+        assertArrayEquals(new int[]{3, 4}, index.filter(FilmFilter.builder().yearFrom(1996).build()).toArray());
+        assertArrayEquals(new int[0], index.filter(FilmFilter.builder().genreId(42).build()).toArray());
+    }
+
+    @Test
+    public void testMaxDurationFiltersBoundaryBucketExactly() {
+        FilmBitmapIndex index = new FilmBitmapIndex();
+        index.put(1, List.of(), 1, 2000, 95);
+        index.put(2, List.of(), 1, 2000, 100);
+        index.put(3, List.of(), 1, 2000, 101);
+        index.put(4, List.of(), 1, 2000, 109);
+        index.put(5, List.of(), 1, 2000, 110);
+
+        assertArrayEquals(new int[]{1, 2}, index.filter(FilmFilter.builder().maxDuration(100).build()).toArray());
+        assertArrayEquals(new int[]{1, 2, 3, 4},
+                index.filter(FilmFilter.builder().maxDuration(109).build()).toArray());
+        assertArrayEquals(new int[0], index.filter(FilmFilter.builder().maxDuration(94).build()).toArray());
+    }
+
+    @Test
+    public void testFacetsCountFilteredFilms() {
+        FilmBitmapIndex index = new FilmBitmapIndex();
+        index.put(1, List.of(1, 2), 1, 1985, 100);
+        index.put(2, List.of(2), 3, 1995, 130);
+        index.put(3, List.of(2, 6), 3, 1999, 90);
+        index.put(4, List.of(), 3, 2005, 90);
+
+        FilmBitmapIndex.Facets facets = index.facets(new FilmFilter());
+        assertEquals(4, facets.total());
+        assertEquals(Map.of(1, 1, 2, 3, 6, 1), facets.genres());
+        assertEquals(Map.of(1, 1, 3, 3), facets.mpa());
+        assertEquals(Map.of(1980, 1, 1990, 2, 2000, 1), facets.decades());
+
+        facets = index.facets(FilmFilter.builder().mpaId(3).build());
+        assertEquals(3, facets.total());
+        assertEquals(Map.of(2, 2, 6, 1), facets.genres());
+        assertEquals(Map.of(1990, 2, 2000, 1), facets.decades());
+    }
+
+    @Test
+    public void testPutReplacesAndRemoveForgetsFilm() {
+        FilmBitmapIndex index = new FilmBitmapIndex();
+        index.put(1, List.of(1), 1, 1985, 100);
+        index.put(1, List.of(2), 2, 2001, 150);
+
+        assertArrayEquals(new int[0], index.filter(FilmFilter.builder().genreId(1).build()).toArray());
+        assertArrayEquals(new int[]{1}, index.filter(FilmFilter.builder().genreId(2).mpaId(2).build()).toArray());
+        assertArrayEquals(new int[0], index.filter(FilmFilter.builder().maxDuration(120).build()).toArray());
+
+        index.remove(1);
+        assertEquals(0, index.size());
+        assertArrayEquals(new int[0], index.filter(FilmFilter.builder().genreId(2).build()).toArray());
+    }
+}
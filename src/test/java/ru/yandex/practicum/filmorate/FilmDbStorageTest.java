@@ -6,17 +6,30 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.VersionConflictException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
 import ru.yandex.practicum.filmorate.storage.film.FilmRowMapper;
+import ru.yandex.practicum.filmorate.storage.film.LikeWriteBehindQueue;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraphIndex;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserRowMapper;
 
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
@@ -24,17 +37,27 @@ import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @JdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({UserDbStorage.class, UserRowMapper.class, FilmDbStorage.class, FilmRowMapper.class})
+@Import({UserDbStorage.class, UserRowMapper.class, FilmDbStorage.class, FilmRowMapper.class,
+        FilmPopularityIndex.class, ReferenceDataCache.class, LikeWriteBehindQueue.class, FriendGraphIndex.class})
 public class FilmDbStorageTest {
 
     private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
     private final FilmDbStorage filmDbStorage;
+    private final UserDbStorage userDbStorage;
     private final FilmRowMapper filmRowMapper;
+    private final ReferenceDataCache referenceDataCache;
+    private final FilmPopularityIndex filmPopularityIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LikeWriteBehindQueue likeWriteBehindQueue;
 
     @BeforeEach
     public void beforeEach() {
@@ -52,6 +75,7 @@ public class FilmDbStorageTest {
                 query,
                 "film2", "film2 is good", LocalDate.of(1992, 2, 2), 200, 2
         );
+        filmPopularityIndex.rebuild();
     }
 
     @Test
@@ -95,6 +119,60 @@ public class FilmDbStorageTest {
                 ));
     }
 
+    @Test
+    public void testAddFilmReturnsGeneratedIdWithVersionColumns() {
+        Film film = filmDbStorage.addFilm(Film.builder()
+                .name("film3")
+                .description("film3 is good")
+                .releaseDate(LocalDate.of(1993, 3, 3))
+                .duration(300)
+                .mpa(new Mpa(1, null))
+                .build());
+
+        assertEquals(3, film.getId());
+        assertEquals(0L, filmDbStorage.getFilmVersion(3).orElseThrow().getVersion());
+        assertTrue(filmDbStorage.getFilmVersion(3).orElseThrow().getUpdatedAt() != null);
+    }
+
+    @Test
+    public void testAddFilms() {
+        List<Film> films = filmDbStorage.addFilms(List.of(
+                Film.builder()
+                        .name("film3")
+                        .description("film3 is good")
+                        .releaseDate(LocalDate.of(1993, 3, 3))
+                        .duration(300)
+                        .mpa(new Mpa(3, null))
+                        .genres(Set.of(Genre.builder().id(1).build(), Genre.builder().id(2).build()))
+                        .build(),
+                Film.builder()
+                        .name("film4")
+                        .description("film4 is good")
+                        .releaseDate(LocalDate.of(1994, 4, 4))
+                        .duration(400)
+                        .mpa(new Mpa(4, null))
+                        .build()
+        ));
+
+        assertEquals(3, films.get(0).getId());
+        assertEquals(4, films.get(1).getId());
+        assertEquals(new Mpa(3, "PG-13"), films.get(0).getMpa());
+
+        Film film = filmDbStorage.getFilmById(3).orElseThrow();
+        assertThat(film).isNotNull()
+                .hasFieldOrPropertyWithValue("name", "film3")
+                .hasFieldOrPropertyWithValue("mpa", new Mpa(3, "PG-13"))
+                .hasFieldOrPropertyWithValue("genres", Set.of(
+                        Genre.builder().id(1).name("Комедия").build(),
+                        Genre.builder().id(2).name("Драма").build()
+                ));
+        film = filmDbStorage.getFilmById(4).orElseThrow();
+        assertThat(film).isNotNull()
+                .hasFieldOrPropertyWithValue("name", "film4")
+                .hasFieldOrPropertyWithValue("mpa", new Mpa(4, "R"))
+                .hasFieldOrPropertyWithValue("genres", Set.of());
+    }
+
     @Test
     public void testGetAllFilms() {
         List<Film> films = filmDbStorage.findAll();
@@ -118,6 +196,35 @@ public class FilmDbStorageTest {
 
     }
 
+    @Test
+    public void testExistsById() {
+        assertTrue(filmDbStorage.existsById(1));
+        assertFalse(filmDbStorage.existsById(100));
+    }
+
+    @Test
+    public void testFindPage() {
+        addUsers1to4();
+        addLikedFilms(3, 5);
+
+        List<Film> films = filmDbStorage.findPage(0, 2);
+        assertEquals(2, films.size());
+        assertEquals(1, films.get(0).getId());
+        assertEquals(2, films.get(1).getId());
+
+        films = filmDbStorage.findPage(2, 2);
+        assertEquals(2, films.size());
+        assertEquals(3, films.get(0).getId());
+        assertEquals(4, films.get(1).getId());
+        assertEquals(new Mpa(3, "PG-13"), films.get(0).getMpa());
+
+        films = filmDbStorage.findPage(4, 2);
+        assertEquals(1, films.size());
+        assertEquals(5, films.get(0).getId());
+
+        assertTrue(filmDbStorage.findPage(5, 2).isEmpty());
+    }
+
     @Test
     public void testUpdateFilm() {
         Film film = Film.builder()
@@ -155,6 +262,57 @@ public class FilmDbStorageTest {
                 ));
     }
 
+    @Test
+    public void testUpdateFilmWritesOnlyChangedGenres() {
+        StatementCountingJdbcTemplate countingJdbcTemplate = new StatementCountingJdbcTemplate(dataSource);
+        FilmDbStorage countingStorage = new FilmDbStorage(countingJdbcTemplate, filmRowMapper,
+                referenceDataCache, filmPopularityIndex, eventPublisher, likeWriteBehindQueue);
+        Film film = Film.builder()
+                .id(1)
+                .name("film1")
+                .description("film1 is good")
+                .releaseDate(LocalDate.of(1991, 1, 1))
+                .duration(100)
+                .mpa(new Mpa(1, "G"))
+                .genres(Set.of(Genre.builder().id(1).build(), Genre.builder().id(2).build()))
+                .build();
+        countingStorage.updateFilm(film);
+
+        countingJdbcTemplate.resetStatementCount();
+        countingStorage.updateFilm(film);
+        int statementsWithoutGenreChanges = countingJdbcTemplate.getStatementCount();
+
+        film.setGenres(Set.of(Genre.builder().id(2).build(), Genre.builder().id(3).build()));
+        countingJdbcTemplate.resetStatementCount();
+        countingStorage.updateFilm(film);
+
+        assertEquals(statementsWithoutGenreChanges + 2, countingJdbcTemplate.getStatementCount());
+        assertEquals(Set.of(
+                Genre.builder().id(2).name("Драма").build(),
+                Genre.builder().id(3).name("Мультфильм").build()
+        ), filmDbStorage.getFilmById(1).orElseThrow().getGenres());
+    }
+
+    @Test
+    public void testUpdateFilmComparesVersion() {
+        addUsers1to4();
+        Film film = filmDbStorage.getFilmById(1).orElseThrow();
+        long version = filmDbStorage.getFilmVersion(1).orElseThrow().getContentVersion();
+        filmDbStorage.like(1, 1);
+        film.setName("film111");
+        filmDbStorage.updateFilm(film, version);
+        assertEquals(version + 1, filmDbStorage.getFilmVersion(1).orElseThrow().getContentVersion());
+        assertEquals("film111", filmDbStorage.getFilmById(1).orElseThrow().getName());
+
+        film.setName("film1111");
+        assertThrows(VersionConflictException.class, () -> filmDbStorage.updateFilm(film, version));
+        assertEquals("film111", filmDbStorage.getFilmById(1).orElseThrow().getName());
+
+        film.setId(100);
+        assertThrows(NotFoundException.class, () -> filmDbStorage.updateFilm(film, version));
+        assertThrows(NotFoundException.class, () -> filmDbStorage.updateFilm(film));
+    }
+
     @Test
     public void testDeleteFilm() {
         filmDbStorage.deleteFilm(1);
@@ -177,6 +335,32 @@ public class FilmDbStorageTest {
         assertEquals(new HashSet<>(Set.of(1, 2)), film.getLikes());
     }
 
+    @Test
+    public void testLikeAndUnLikeAreIdempotent() {
+        addUsers1to4();
+        assertTrue(filmDbStorage.like(1, 1));
+        assertFalse(filmDbStorage.like(1, 1));
+        assertEquals(1, filmPopularityIndex.likesCount(1));
+
+        assertTrue(filmDbStorage.unLike(1, 1));
+        assertFalse(filmDbStorage.unLike(1, 1));
+        assertEquals(0, filmPopularityIndex.likesCount(1));
+        assertEquals(new HashSet<>(), filmDbStorage.getFilmById(1).get().getLikes());
+    }
+
+    @Test
+    public void testDeletedUserLikesLeavePopularity() {
+        addUsers1to4();
+        filmDbStorage.like(1, 1);
+        filmDbStorage.like(1, 2);
+        filmDbStorage.like(2, 1);
+
+        userDbStorage.deleteUser(1);
+        assertEquals(1, filmPopularityIndex.likesCount(1));
+        assertEquals(0, filmPopularityIndex.likesCount(2));
+        assertEquals(List.of(1, 2), filmPopularityIndex.top(10));
+    }
+
     @Test
     public void testUnLike() {
         addUsers1to4();
@@ -191,6 +375,29 @@ public class FilmDbStorageTest {
         assertEquals(new HashSet<>(Set.of(2)), film.getLikes());
     }
 
+    @Test
+    public void testFilmVersionChangesOnUpdateAndLikes() {
+        addUsers1to4();
+        long initial = filmDbStorage.getFilmVersion(1).orElseThrow().getVersion();
+
+        Film film = filmDbStorage.getFilmById(1).orElseThrow();
+        film.setName("film111");
+        filmDbStorage.updateFilm(film);
+        assertEquals(initial + 1, filmDbStorage.getFilmVersion(1).orElseThrow().getVersion());
+
+        filmDbStorage.like(1, 1);
+        filmDbStorage.like(1, 1);
+        assertEquals(initial + 2, filmDbStorage.getFilmVersion(1).orElseThrow().getVersion());
+
+        filmDbStorage.unLike(1, 1);
+        assertEquals(initial + 3, filmDbStorage.getFilmVersion(1).orElseThrow().getVersion());
+        assertEquals(1L, filmDbStorage.getFilmVersion(1).orElseThrow().getContentVersion());
+        assertEquals(filmDbStorage.getFilmVersion(1).orElseThrow(),
+                filmDbStorage.getFilmById(1).orElseThrow().getVersion());
+        assertEquals(initial, filmDbStorage.getFilmVersion(2).orElseThrow().getVersion());
+        assertTrue(filmDbStorage.getFilmVersion(100).isEmpty());
+    }
+
     @Test
     public void testGetMostPopular() {
         addUsers1to4();
@@ -251,6 +458,79 @@ public class FilmDbStorageTest {
         assertThat(film).isNotNull()
                 .hasFieldOrPropertyWithValue("id", 4);
 
+        assertEquals(List.of(3, 4, 5), filmIds(filmDbStorage.getMostPopulars(10, 1, null, null)));
+        assertEquals(List.of(2, 5), filmIds(filmDbStorage.getMostPopulars(10, null, 2, null)));
+        assertEquals(List.of(5), filmIds(filmDbStorage.getMostPopulars(10, 2, 2, null)));
+        assertEquals(List.of(2), filmIds(filmDbStorage.getMostPopulars(10, null, null, 1992)));
+        assertEquals(List.of(), filmIds(filmDbStorage.getMostPopulars(10, 1, null, 1991)));
+
+        filmDbStorage.like(5, 1);
+        filmDbStorage.like(5, 2);
+        filmDbStorage.like(5, 3);
+        assertEquals(List.of(5, 3, 4), filmIds(filmDbStorage.getMostPopulars(10, 1, null, null)));
+    }
+
+    @Test
+    public void testFindAllQueryCountDoesNotDependOnFilmsAmount() {
+        addUsers1to4();
+        StatementCountingJdbcTemplate countingJdbcTemplate = new StatementCountingJdbcTemplate(dataSource);
+        FilmDbStorage countingStorage = new FilmDbStorage(countingJdbcTemplate, filmRowMapper,
+                referenceDataCache, filmPopularityIndex, eventPublisher, likeWriteBehindQueue);
+
+        countingStorage.findAll();
+        int statementsForTwoFilms = countingJdbcTemplate.getStatementCount();
+
+        addLikedFilms(3, 30);
+        countingJdbcTemplate.resetStatementCount();
+        Collection<Film> films = countingStorage.findAll();
+
+        assertEquals(30, films.size());
+        assertEquals(statementsForTwoFilms, countingJdbcTemplate.getStatementCount());
+    }
+
+    @Test
+    public void testGetMostPopularQueryCountDoesNotDependOnFilmsAmount() {
+        addUsers1to4();
+        StatementCountingJdbcTemplate countingJdbcTemplate = new StatementCountingJdbcTemplate(dataSource);
+        FilmDbStorage countingStorage = new FilmDbStorage(countingJdbcTemplate, filmRowMapper,
+                referenceDataCache, filmPopularityIndex, eventPublisher, likeWriteBehindQueue);
+
+        countingStorage.getMostPopulars(2);
+        int statementsForTwoFilms = countingJdbcTemplate.getStatementCount();
+
+        addLikedFilms(3, 30);
+        countingJdbcTemplate.resetStatementCount();
+        List<Film> films = countingStorage.getMostPopulars(30);
+
+        assertEquals(30, films.size());
+        assertEquals(statementsForTwoFilms, countingJdbcTemplate.getStatementCount());
+        assertEquals(Set.of(1, 2, 3), films.get(0).getLikes());
+        assertEquals(Set.of(
+                Genre.builder().id(1).name("Комедия").build(),
+                Genre.builder().id(2).name("Драма").build()
+        ), films.get(0).getGenres());
+        assertEquals(new Mpa(3, "PG-13"), films.get(0).getMpa());
+    }
+
+    private List<Integer> filmIds(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+
+    private void addLikedFilms(int fromId, int toId) {
+        for (int id = fromId; id <= toId; id++) {
+            Film film = Film.builder()
+                    .name("film" + id)
+                    .description("film" + id + " is good")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(100)
+                    .mpa(new Mpa(3, "PG-13"))
+                    .genres(Set.of(Genre.builder().id(1).build(), Genre.builder().id(2).build()))
+                    .build();
+            filmDbStorage.addFilm(film);
+            for (int userId = 1; userId <= id % 4; userId++) {
+                filmDbStorage.like(id, userId);
+            }
+        }
     }
 
     private void addUsers1to4() {
@@ -278,4 +558,26 @@ public class FilmDbStorageTest {
 
     }
 
+    private static class StatementCountingJdbcTemplate extends JdbcTemplate {
+        private int statementCount;
+
+        StatementCountingJdbcTemplate(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        protected void applyStatementSettings(Statement stmt) throws SQLException {
+            statementCount++;
+            super.applyStatementSettings(stmt);
+        }
+
+        int getStatementCount() {
+            return statementCount;
+        }
+
+        void resetStatementCount() {
+            statementCount = 0;
+        }
+    }
+
 }
@@ -11,9 +11,11 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.RequestCoalescer;
 import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
 
 import java.time.LocalDate;
@@ -29,11 +31,13 @@ public class FilmTest {
 
     private static Validator validator;
     private static JdbcTemplate jdbcTemplate;
+    private static final ReferenceDataCache referenceDataCache = new ReferenceDataCache(jdbcTemplate);
     private final FilmService filmService = new FilmService(
             new InMemoryFilmStorage(),
             new InMemoryUserStorage(),
-            new MpaDbStorage(jdbcTemplate),
-            new GenreDbStorage(jdbcTemplate)
+            new MpaDbStorage(referenceDataCache),
+            new GenreDbStorage(referenceDataCache),
+            new RequestCoalescer(RequestCoalescer.DEFAULT_TIMEOUT_MS)
     );
 
 
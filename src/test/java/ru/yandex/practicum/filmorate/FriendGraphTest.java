@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FriendGraphTest {
+
+    @Test
+    public void testAdjacencyIsKeptSorted() {
+        FriendGraph graph = new FriendGraph();
+        assertTrue(graph.add(1, 5));
+        assertTrue(graph.add(1, 2));
+        assertTrue(graph.add(1, 9));
+        assertFalse(graph.add(1, 2));
+
+        assertArrayEquals(new int[]{2, 5, 9}, graph.friends(1));
+        assertTrue(graph.remove(1, 5));
+        assertFalse(graph.remove(1, 5));
+        assertArrayEquals(new int[]{2, 9}, graph.friends(1));
+        assertArrayEquals(new int[0], graph.friends(2));
+    }
+
+    @Test
+    public void testCommonFriendsAndRemoveUser() {
+        FriendGraph graph = new FriendGraph();
+        for (int friendId : new int[]{3, 4, 7, 8}) {
+            graph.add(1, friendId);
+        }
+        for (int friendId : new int[]{1, 4, 8, 10}) {
+            graph.add(2, friendId);
+        }
+
+        assertArrayEquals(new int[]{4, 8}, graph.common(1, 2));
+
+        graph.removeUser(4);
+        assertArrayEquals(new int[]{8}, graph.common(1, 2));
+        assertArrayEquals(new int[]{3, 7, 8}, graph.friends(1));
+    }
+
+    @Test
+    public void testSuggestionsAreRankedByMutualFriends() {
+        FriendGraph graph = new FriendGraph();
+        graph.add(1, 2);
+        graph.add(1, 3);
+        graph.add(1, 4);
+        graph.add(2, 5);
+        graph.add(2, 6);
+        graph.add(3, 6);
+        graph.add(3, 7);
+        graph.add(4, 6);
+        graph.add(4, 7);
+        graph.add(4, 1);
+        graph.add(4, 3);
+
+        assertArrayEquals(new int[]{6, 7, 5}, graph.suggestions(1, 10, 100, 100));
+        assertArrayEquals(new int[]{6, 7}, graph.suggestions(1, 2, 100, 100));
+        assertArrayEquals(new int[]{5}, graph.suggestions(1, 10, 1, 100));
+        assertArrayEquals(new int[0], graph.suggestions(8, 10, 100, 100));
+        assertArrayEquals(new int[]{6, 7, 5}, graph.suggestions(1, Integer.MAX_VALUE, 100, 100));
+    }
+
+    @Test
+    public void testInMemoryCommonFriendsDoNotChangeStoredFriends() {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        for (int i = 1; i <= 4; i++) {
+            storage.addUser(User.builder()
+                    .email("user" + i + "@yandex.ru")
+                    .login("login" + i)
+                    .birthday(LocalDate.of(1990, 1, i))
+                    .build());
+        }
+        storage.addFriend(1, 3);
+        storage.addFriend(1, 4);
+        storage.addFriend(2, 3);
+
+        List<User> common = List.copyOf(storage.getCommonFriends(1, 2));
+
+        assertEquals(1, common.size());
+        assertEquals(3, common.get(0).getId());
+        assertEquals(new HashSet<>(Set.of(3, 4)), storage.getUserById(1).get().getFriends());
+    }
+}
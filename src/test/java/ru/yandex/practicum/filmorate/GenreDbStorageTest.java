@@ -6,22 +6,28 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
 
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @JdbcTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({GenreDbStorage.class})
+@Import({GenreDbStorage.class, ReferenceDataCache.class})
 public class GenreDbStorageTest {
 
     private final GenreDbStorage genreDbStorage;
+    private final ReferenceDataCache referenceDataCache;
+    private final JdbcTemplate jdbcTemplate;
 
     @Test
     public void testGetGenreById() {
@@ -36,6 +42,31 @@ public class GenreDbStorageTest {
         assertTrue(genreDbStorage.getGenreById(7).isEmpty());
     }
 
+    @Test
+    public void testGenresAreServedFromCacheUntilRefresh() {
+        jdbcTemplate.update("INSERT INTO genre (id, name) VALUES (?, ?)", 7, "Фантастика");
+        assertTrue(genreDbStorage.getGenreById(7).isEmpty());
+
+        referenceDataCache.refresh();
+        assertThat(genreDbStorage.getGenreById(7).orElseThrow())
+                .hasFieldOrPropertyWithValue("name", "Фантастика");
+
+        jdbcTemplate.update("DELETE FROM genre WHERE id = ?", 7);
+        referenceDataCache.refresh();
+        assertTrue(genreDbStorage.getGenreById(7).isEmpty());
+    }
+
+    @Test
+    public void testDigestFollowsReferenceContent() {
+        String digest = referenceDataCache.digest();
+        referenceDataCache.refresh();
+        assertEquals(digest, referenceDataCache.digest());
+
+        jdbcTemplate.update("UPDATE genre SET name = ? WHERE id = ?", "Комедии", 1);
+        referenceDataCache.refresh();
+        assertNotEquals(digest, referenceDataCache.digest());
+    }
+
     @Test
     public void getAllGenres() {
         List<Genre> genres = genreDbStorage.getAllGenres();
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.search.InvertedIndex;
+import ru.yandex.practicum.filmorate.storage.search.TextAnalyzer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class InvertedIndexTest {
+
+    @Test
+    public void testTermsAreNormalizedAndStemmed() {
+        assertEquals(List.of("фильм", "приключени", "красноармейц"),
+                TextAnalyzer.terms("Фильмы о приключениях красноармейца"));
+        assertEquals(List.of("еж", "movie", "star"), TextAnalyzer.terms("Ёж, the movies: STARS!"));
+    }
+
+    @Test
+    public void testSearchRanksByBm25() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, frequencies("Белое солнце пустыни", "о приключениях красноармейца в пустыне"));
+        index.put(2, frequencies("Пустыня", "документальный фильм"));
+        index.put(3, frequencies("Солярис", "фантастика о космосе"));
+
+        assertEquals(List.of(2, 1), index.search(TextAnalyzer.terms("пустыня"), 10));
+        assertEquals(List.of(1), index.search(TextAnalyzer.terms("солнце пустыни"), 1));
+        assertEquals(List.of(3), index.search(TextAnalyzer.terms("космос"), 10));
+
+        index.put(3, frequencies("Солярис", "драма"));
+        assertEquals(List.of(), index.search(TextAnalyzer.terms("космос"), 10));
+        index.remove(1);
+        assertEquals(List.of(2), index.search(TextAnalyzer.terms("пустыня солнце"), 10));
+    }
+
+    private Map<String, Integer> frequencies(String name, String description) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        TextAnalyzer.terms(name).forEach(term -> frequencies.merge(term, 2, Integer::sum));
+        TextAnalyzer.terms(description).forEach(term -> frequencies.merge(term, 1, Integer::sum));
+        return frequencies;
+    }
+}
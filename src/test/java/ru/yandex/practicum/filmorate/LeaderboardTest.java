@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.film.Leaderboard;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LeaderboardTest {
+
+    @Test
+    public void testTopIsOrderedByScoreThenById() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.add(1);
+        leaderboard.add(2);
+        leaderboard.add(3);
+        leaderboard.increment(3);
+        leaderboard.increment(2);
+        leaderboard.increment(2);
+        leaderboard.increment(1);
+
+        assertEquals(List.of(2, 1, 3), leaderboard.top(10));
+        assertEquals(List.of(2, 1), leaderboard.top(2));
+        assertEquals(2, leaderboard.score(2));
+    }
+
+    @Test
+    public void testDecrementAndRemove() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.set(1, 5);
+        leaderboard.set(2, 3);
+        leaderboard.decrement(1);
+        leaderboard.decrement(1);
+
+        assertEquals(List.of(1, 2), leaderboard.top(2));
+
+        leaderboard.decrement(1);
+        assertEquals(List.of(2, 1), leaderboard.top(2));
+
+        leaderboard.remove(2);
+        assertEquals(List.of(1), leaderboard.top(2));
+        assertEquals(0, leaderboard.score(2));
+    }
+
+    @Test
+    public void testAddKeepsExistingScore() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.set(1, 4);
+        leaderboard.add(1);
+
+        assertEquals(4, leaderboard.score(1));
+        assertEquals(1, leaderboard.size());
+    }
+}
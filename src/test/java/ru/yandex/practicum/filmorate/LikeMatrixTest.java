@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.film.LikeMatrix;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LikeMatrixTest {
+
+    @Test
+    public void testRecommendationsAreWeightedBySimilarity() {
+        LikeMatrix matrix = likes();
+
+        assertArrayEquals(new int[]{4, 5}, matrix.recommend(1, 10, 10, 100, 1000));
+        assertArrayEquals(new int[]{4}, matrix.recommend(1, 1, 10, 100, 1000));
+        assertArrayEquals(new int[]{4}, matrix.recommend(1, 10, 1, 100, 1000));
+        assertArrayEquals(new int[0], matrix.recommend(4, 10, 10, 100, 1000));
+        assertArrayEquals(new int[0], matrix.recommend(5, 10, 10, 100, 1000));
+    }
+
+    @Test
+    public void testRecommendationsFollowUpdates() {
+        LikeMatrix matrix = likes();
+        assertFalse(matrix.add(1, 1));
+        assertTrue(matrix.add(1, 4));
+        assertArrayEquals(new int[]{5}, matrix.recommend(1, 10, 10, 100, 1000));
+
+        assertTrue(matrix.remove(1, 4));
+        matrix.removeFilm(4);
+        assertArrayEquals(new int[]{5}, matrix.recommend(1, 10, 10, 100, 1000));
+
+        matrix.removeUser(3);
+        assertArrayEquals(new int[0], matrix.recommend(1, 10, 10, 100, 1000));
+        assertEquals(3, matrix.usersCount());
+    }
+
+    private LikeMatrix likes() {
+        LikeMatrix matrix = new LikeMatrix();
+        int[][] likes = {{1, 1}, {1, 2}, {1, 3}, {2, 1}, {2, 2}, {2, 4}, {3, 3}, {3, 5}, {4, 6}};
+        for (int[] like : likes) {
+            matrix.add(like[0], like[1]);
+        }
+        return matrix;
+    }
+}
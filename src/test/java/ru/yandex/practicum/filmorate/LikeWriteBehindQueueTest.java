@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.LikeWriteBehindQueue;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@JdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import(FilmPopularityIndex.class)
+class LikeWriteBehindQueueTest {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FilmPopularityIndex filmPopularityIndex;
+
+    private LikeWriteBehindQueue queue;
+
+    @BeforeEach
+    public void beforeEach() {
+        jdbcTemplate.update("DELETE FROM films");
+        jdbcTemplate.update("ALTER TABLE films ALTER COLUMN id RESTART WITH 1");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("ALTER TABLE users ALTER COLUMN id RESTART WITH 1");
+        for (int i = 1; i <= 4; i++) {
+            jdbcTemplate.update("INSERT INTO films (name, description, release_date, duration, mpa_id) " +
+                    "VALUES (?, ?, ?, ?, ?)", "film" + i, "description" + i, LocalDate.of(2000, 1, i), 100, 1);
+            jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)",
+                    "user" + i + "@yandex.ru", "login" + i, "name" + i, LocalDate.of(1990, 1, i));
+        }
+        filmPopularityIndex.rebuild();
+        queue = new LikeWriteBehindQueue(jdbcTemplate, transactionManager, eventPublisher,
+                true, 60_000, 3, 2);
+    }
+
+    @Test
+    public void testLikesAreWrittenOnFlush() {
+        assertTrue(queue.like(1, 1));
+        assertFalse(queue.like(1, 1));
+        assertEquals(0, countLikes(1));
+        assertEquals(0, filmPopularityIndex.likesCount(1));
+
+        queue.flush();
+
+        assertEquals(1, countLikes(1));
+        assertEquals(1, filmPopularityIndex.likesCount(1));
+        assertEquals(0, queue.pendingCount());
+        assertFalse(queue.like(1, 1));
+    }
+
+    @Test
+    public void testTogglesAreCoalesced() {
+        jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", 2, 1);
+        filmPopularityIndex.rebuild();
+
+        assertTrue(queue.like(1, 1));
+        assertTrue(queue.unLike(1, 1));
+        assertTrue(queue.unLike(2, 1));
+        assertTrue(queue.like(2, 1));
+        assertEquals(2, queue.pendingCount());
+
+        queue.flush();
+
+        assertEquals(0, countLikes(1));
+        assertEquals(1, countLikes(2));
+        assertEquals(0, filmPopularityIndex.likesCount(1));
+        assertEquals(1, filmPopularityIndex.likesCount(2));
+    }
+
+    @Test
+    public void testFullQueueIsFlushedByCaller() {
+        queue.like(1, 1);
+        queue.like(1, 2);
+        queue.like(1, 3);
+        assertEquals(0, countLikes(1));
+
+        queue.like(1, 4);
+
+        assertEquals(3, countLikes(1));
+        assertEquals(1, queue.pendingCount());
+    }
+
+    @Test
+    public void testStopDrainsQueue() {
+        queue.like(1, 1);
+        queue.like(2, 1);
+
+        queue.stop();
+
+        assertEquals(1, countLikes(1));
+        assertEquals(1, countLikes(2));
+        assertEquals(0, queue.pendingCount());
+    }
+
+    @Test
+    public void testLikesOfDeletedFilmAreDropped() {
+        queue.like(1, 1);
+        queue.like(2, 1);
+        jdbcTemplate.update("DELETE FROM films WHERE id = ?", 1);
+
+        queue.flush();
+
+        assertEquals(1, countLikes(2));
+        assertEquals(0, queue.pendingCount());
+    }
+
+    private int countLikes(int filmId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes WHERE film_id = ?", Integer.class, filmId);
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.film.MinHashIndex;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MinHashIndexTest {
+
+    @Test
+    public void testSimilarFilmsAreOrderedByEstimatedSimilarity() {
+        MinHashIndex index = new MinHashIndex(16, 4);
+        index.put(1, IntStream.rangeClosed(1, 10).toArray());
+        index.put(2, IntStream.rangeClosed(1, 10).toArray());
+        index.put(3, IntStream.rangeClosed(2, 11).toArray());
+        index.put(4, IntStream.rangeClosed(100, 110).toArray());
+
+        assertEquals(List.of(2, 3), index.similar(1, 10));
+        assertEquals(List.of(2), index.similar(1, 1));
+        assertEquals(1.0, index.estimateSimilarity(1, 2));
+        assertTrue(index.similar(4, 10).isEmpty());
+    }
+
+    @Test
+    public void testIncrementalUpdatesMatchRebuild() {
+        MinHashIndex incremental = new MinHashIndex(8, 2);
+        MinHashIndex rebuilt = new MinHashIndex(8, 2);
+        for (int userId = 1; userId <= 20; userId++) {
+            incremental.add(1, userId);
+            incremental.add(2, userId + 5);
+        }
+        incremental.remove(1, 3);
+        incremental.remove(2, 25);
+        rebuilt.put(1, IntStream.rangeClosed(1, 20).filter(id -> id != 3).toArray());
+        rebuilt.put(2, IntStream.rangeClosed(6, 24).toArray());
+
+        assertEquals(rebuilt.estimateSimilarity(1, 2), incremental.estimateSimilarity(1, 2));
+        assertEquals(rebuilt.similar(1, 10), incremental.similar(1, 10));
+
+        incremental.removeUser(7);
+        incremental.removeFilm(2);
+        assertTrue(incremental.similar(1, 10).isEmpty());
+        assertEquals(1, incremental.size());
+    }
+}
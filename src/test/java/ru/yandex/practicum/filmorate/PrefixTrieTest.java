@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.search.PrefixTrie;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PrefixTrieTest {
+
+    @Test
+    public void testCompleteRanksByScoreThenId() {
+        PrefixTrie trie = new PrefixTrie(2);
+        trie.put(1, "Солярис", 3);
+        trie.put(2, "Солнце", 5);
+        trie.put(3, "Сталкер", 5);
+        trie.put(4, "Ёлки", 0);
+
+        assertEquals(List.of(2, 3), trie.complete("С", 10));
+        assertEquals(List.of(2, 3), trie.complete("С", 2));
+        assertEquals(List.of(2), trie.complete("  сол", 1));
+        assertEquals(List.of(2, 1), trie.complete("сол", 2));
+        assertEquals(List.of(4), trie.complete("ел", 10));
+        assertEquals(List.of(), trie.complete("мир", 10));
+        assertEquals("Ёлки", trie.text(4));
+    }
+
+    @Test
+    public void testScoreChangesAndRemovalRefreshCachedTop() {
+        PrefixTrie trie = new PrefixTrie(2);
+        trie.put(1, "Солярис", 3);
+        trie.put(2, "Солнце", 5);
+        trie.put(3, "Сталкер", 1);
+
+        trie.adjustScore(3, 10);
+        assertEquals(List.of(3, 2), trie.complete("с", 2));
+        trie.adjustScore(3, -10);
+        assertEquals(List.of(2, 1), trie.complete("с", 2));
+
+        trie.remove(2);
+        assertEquals(List.of(1, 3), trie.complete("с", 2));
+        assertEquals(List.of(), trie.complete("солн", 2));
+
+        trie.put(1, "Мир");
+        assertEquals(List.of(3), trie.complete("с", 2));
+        assertEquals(List.of(1), trie.complete("ми", 2));
+        assertEquals(2, trie.size());
+    }
+
+    @Test
+    public void testDirtyCacheIsRebuiltFromChildren() {
+        PrefixTrie trie = new PrefixTrie(2);
+        trie.put(1, "Сталкер", 9);
+        trie.put(2, "Солярис", 7);
+        trie.put(3, "Солнце", 5);
+        trie.put(4, "Сон", 4);
+        trie.put(5, "Сад", 1);
+        assertEquals(List.of(1, 2), trie.complete("с", 2));
+
+        trie.adjustScore(1, -9);
+        trie.adjustScore(2, -7);
+        assertEquals(List.of(3, 4), trie.complete("с", 2));
+        assertEquals(List.of(3, 4), trie.complete("со", 5));
+
+        trie.remove(3);
+        assertEquals(List.of(4, 5), trie.complete("с", 2));
+        assertEquals(List.of(4, 2), trie.complete("со", 2));
+    }
+}
@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+import ru.yandex.practicum.filmorate.model.CoalescingStats;
+import ru.yandex.practicum.filmorate.service.RequestCoalescer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RequestCoalescerTest {
+
+    @Test
+    public void testConcurrentCallersShareOneExecution() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(5000);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> leader = executor.submit(() -> coalescer.execute("film:1", () -> {
+                loads.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "film";
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<String> first = executor.submit(() -> coalescer.execute("film:1", () -> "other"));
+            Future<String> second = executor.submit(() -> coalescer.execute("film:1", () -> "other"));
+            while (coalescer.stats().getCollapsed() < 2) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertEquals("film", leader.get(5, TimeUnit.SECONDS));
+            assertEquals("film", first.get(5, TimeUnit.SECONDS));
+            assertEquals("film", second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+
+            CoalescingStats stats = coalescer.stats();
+            assertEquals(3L, stats.getCalls());
+            assertEquals(1L, stats.getExecutions());
+            assertEquals(2L, stats.getCollapsed());
+            assertEquals(0, stats.getInFlight());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSequentialCallsAreNotCollapsed() {
+        RequestCoalescer coalescer = new RequestCoalescer(5000);
+        AtomicInteger loads = new AtomicInteger();
+
+        coalescer.execute("popular:10", loads::incrementAndGet);
+        coalescer.execute("popular:10", loads::incrementAndGet);
+        coalescer.execute("popular:20", loads::incrementAndGet);
+
+        assertEquals(3, loads.get());
+        assertEquals(0L, coalescer.stats().getCollapsed());
+    }
+
+    @Test
+    public void testLeaderFailureIsSharedAndNotCached() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(5000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> leader = executor.submit(() -> coalescer.execute("film:1", () -> {
+                started.countDown();
+                await(release);
+                throw new IllegalStateException("Ошибка загрузки");
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<String> follower = executor.submit(() -> coalescer.execute("film:1", () -> "other"));
+            while (coalescer.stats().getCollapsed() < 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertTrue(causeOf(leader) instanceof IllegalStateException);
+            assertTrue(causeOf(follower) instanceof IllegalStateException);
+            assertEquals("film", coalescer.execute("film:1", () -> "film"));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFollowerGivesUpAfterTimeout() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(() -> coalescer.execute("film:1", () -> {
+                started.countDown();
+                await(release);
+                return "film";
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<String> follower = executor.submit(() -> coalescer.execute("film:1", () -> "other"));
+
+            assertTrue(causeOf(follower) instanceof ServiceUnavailableException);
+            assertEquals(1L, coalescer.stats().getTimeouts());
+            release.countDown();
+            assertEquals("film", leader.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static Throwable causeOf(Future<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.film.ScopedLeaderboard;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ScopedLeaderboardTest {
+
+    @Test
+    public void testScopedTopFollowsLikes() {
+        ScopedLeaderboard leaderboard = new ScopedLeaderboard();
+        leaderboard.put(1, List.of(1), 1, 1991, 5);
+        leaderboard.put(2, List.of(1, 2), 3, 1992, 3);
+        leaderboard.put(3, List.of(2), 3, 1992, 4);
+
+        assertEquals(List.of(1, 3, 2), leaderboard.top(10, null, null, null));
+        assertEquals(List.of(1, 2), leaderboard.top(10, 1, null, null));
+        assertEquals(List.of(3, 2), leaderboard.top(10, null, 3, 1992));
+        assertEquals(List.of(2), leaderboard.top(10, 1, 3, null));
+        assertEquals(List.of(), leaderboard.top(10, 6, null, null));
+
+        leaderboard.increment(2);
+        leaderboard.increment(2);
+        leaderboard.increment(2);
+        assertEquals(List.of(2, 1), leaderboard.top(10, 1, null, null));
+        assertEquals(List.of(2), leaderboard.top(1, 2, null, null));
+    }
+
+    @Test
+    public void testPutMovesFilmBetweenScopesKeepingScore() {
+        ScopedLeaderboard leaderboard = new ScopedLeaderboard();
+        leaderboard.put(1, List.of(1), 1, 1991, 5);
+        leaderboard.put(1, List.of(2), 2, 2001);
+
+        assertEquals(5, leaderboard.score(1));
+        assertEquals(List.of(), leaderboard.top(10, 1, null, null));
+        assertEquals(List.of(1), leaderboard.top(10, 2, 2, 2001));
+
+        leaderboard.remove(1);
+        assertEquals(List.of(), leaderboard.top(10, 2, null, null));
+        assertEquals(0, leaderboard.size());
+    }
+}
@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.ResponseCacheStats;
+import ru.yandex.practicum.filmorate.storage.cache.StaleWhileRevalidateCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StaleWhileRevalidateCacheTest {
+    private final AtomicLong now = new AtomicLong(1000);
+    private final List<Runnable> pending = new ArrayList<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void testFreshEntryIsServedFromCache() {
+        StaleWhileRevalidateCache<String, Integer> cache = cache(pending::add);
+
+        assertEquals(1, cache.get("all", loads::incrementAndGet));
+        now.addAndGet(99);
+        assertEquals(1, cache.get("all", loads::incrementAndGet));
+
+        assertEquals(1, loads.get());
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    public void testStaleEntryIsServedWhileRefreshRunsInBackground() {
+        StaleWhileRevalidateCache<String, Integer> cache = cache(pending::add);
+        cache.get("all", loads::incrementAndGet);
+        now.addAndGet(100);
+
+        assertEquals(1, cache.get("all", loads::incrementAndGet));
+        assertEquals(1, cache.get("all", loads::incrementAndGet));
+        assertEquals(1, pending.size());
+        assertEquals(1, loads.get());
+
+        pending.remove(0).run();
+        assertEquals(2, cache.get("all", loads::incrementAndGet));
+
+        ResponseCacheStats stats = cache.stats();
+        assertEquals(1L, stats.getHits());
+        assertEquals(2L, stats.getStaleHits());
+        assertEquals(1L, stats.getMisses());
+        assertEquals(1L, stats.getRefreshes());
+    }
+
+    @Test
+    public void testExpiredEntryIsLoadedSynchronously() {
+        StaleWhileRevalidateCache<String, Integer> cache = cache(pending::add);
+        cache.get("all", loads::incrementAndGet);
+        now.addAndGet(1000);
+
+        assertEquals(2, cache.get("all", loads::incrementAndGet));
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    public void testRefreshStartedBeforeInvalidationIsDropped() {
+        StaleWhileRevalidateCache<String, Integer> cache = cache(pending::add);
+        cache.get("all", loads::incrementAndGet);
+        now.addAndGet(100);
+        cache.get("all", loads::incrementAndGet);
+
+        cache.invalidateAll();
+        assertEquals(2, cache.get("all", loads::incrementAndGet));
+        pending.remove(0).run();
+
+        assertEquals(2, cache.get("all", loads::incrementAndGet));
+    }
+
+    @Test
+    public void testMarkedStaleEntryIsServedAndRefreshedOnce() {
+        StaleWhileRevalidateCache<String, Integer> cache = cache(pending::add);
+        cache.get("all", loads::incrementAndGet);
+
+        cache.markAllStale();
+        assertEquals(1, cache.get("all", loads::incrementAndGet));
+        assertEquals(1, cache.get("all", loads::incrementAndGet));
+        assertEquals(1, pending.size());
+        assertEquals(1, loads.get());
+
+        pending.remove(0).run();
+        assertEquals(2, cache.get("all", loads::incrementAndGet));
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    public void testRefreshStartedBeforeStaleMarkStaysStale() {
+        StaleWhileRevalidateCache<String, Integer> cache = cache(pending::add);
+        cache.get("all", loads::incrementAndGet);
+        cache.markAllStale();
+        cache.get("all", loads::incrementAndGet);
+
+        cache.markAllStale();
+        pending.remove(0).run();
+
+        assertEquals(2, cache.get("all", loads::incrementAndGet));
+        assertEquals(1, pending.size());
+        pending.remove(0).run();
+        assertEquals(3, cache.get("all", loads::incrementAndGet));
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    public void testRejectedRefreshIsRetriedByNextRequest() {
+        AtomicInteger rejections = new AtomicInteger(1);
+        StaleWhileRevalidateCache<String, Integer> cache = cache(task -> {
+            if (rejections.getAndDecrement() > 0) {
+                throw new RejectedExecutionException();
+            }
+            task.run();
+        });
+        cache.get("all", loads::incrementAndGet);
+        now.addAndGet(100);
+
+        assertEquals(1, cache.get("all", loads::incrementAndGet));
+        assertEquals(1, cache.get("all", loads::incrementAndGet));
+        assertEquals(2, cache.get("all", loads::incrementAndGet));
+        assertEquals(1L, cache.stats().getRejectedRefreshes());
+    }
+
+    @Test
+    public void testFailedRefreshKeepsStaleValue() {
+        StaleWhileRevalidateCache<String, Integer> cache = cache(Runnable::run);
+        cache.get("all", loads::incrementAndGet);
+        now.addAndGet(100);
+
+        assertEquals(1, cache.get("all", () -> {
+            throw new IllegalStateException("База недоступна");
+        }));
+        assertEquals(1, cache.get("all", () -> 1));
+        assertEquals(1L, cache.stats().getRefreshFailures());
+    }
+
+    private StaleWhileRevalidateCache<String, Integer> cache(Executor executor) {
+        return new StaleWhileRevalidateCache<>("test", 10, 100, 1000, executor, now::get);
+    }
+}
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.film.TrendingScores;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TrendingScoresTest {
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    public void testRecentLikesOutweighOldOnes() {
+        TrendingScores scores = new TrendingScores(24 * HOUR, 7 * 24 * HOUR, 0);
+        scores.like(1, 1, 0);
+        scores.like(1, 2, 0);
+        scores.like(1, 3, 0);
+        scores.like(2, 1, 72 * HOUR);
+        scores.like(2, 2, 72 * HOUR);
+
+        assertEquals(List.of(2, 1), scores.top(10));
+        assertEquals(3.0 / 8, scores.score(1, 72 * HOUR), 1e-9);
+        assertEquals(2.0, scores.score(2, 72 * HOUR), 1e-9);
+
+        scores.unLike(2, 1);
+        scores.unLike(2, 2);
+        assertEquals(List.of(1), scores.top(10));
+    }
+
+    @Test
+    public void testLikesLeaveWindowAndEpochMoves() {
+        TrendingScores scores = new TrendingScores(HOUR, 10 * HOUR, 0);
+        scores.like(1, 1, 0);
+        scores.like(2, 1, 5 * HOUR);
+
+        scores.advance(11 * HOUR);
+        assertEquals(List.of(2), scores.top(10));
+
+        scores.like(1, 2, 14 * HOUR);
+        scores.advance(16 * HOUR);
+        assertEquals(List.of(1), scores.top(10));
+        assertEquals(0.25, scores.score(1, 16 * HOUR), 1e-9);
+
+        scores.removeUser(2);
+        assertEquals(0, scores.size());
+    }
+}
@@ -8,30 +8,40 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.VersionConflictException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraphIndex;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserRowMapper;
 
 import java.time.LocalDate;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @JdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({UserDbStorage.class, UserRowMapper.class})
+@Import({UserDbStorage.class, UserRowMapper.class, FriendGraphIndex.class})
 class UserDbStorageTest {
 
     private final UserDbStorage userDbStorage;
     private final JdbcTemplate jdbcTemplate;
     private final UserRowMapper userRowMapper;
+    private final FriendGraphIndex friendGraphIndex;
 
     @BeforeEach
     public void beforeEach() {
@@ -49,6 +59,7 @@ class UserDbStorageTest {
                 "user2@yandex.ru", "login2", "name2",
                 LocalDate.of(1992, 2, 2)
         );
+        friendGraphIndex.rebuild();
     }
 
 
@@ -85,6 +96,20 @@ class UserDbStorageTest {
                 .hasFieldOrPropertyWithValue("birthday", LocalDate.of(1993, 3, 3));
     }
 
+    @Test
+    public void testAddUserReturnsGeneratedIdWithVersionColumns() {
+        User user = userDbStorage.addUser(User.builder()
+                .email("user3@yandex.ru")
+                .login("login3")
+                .name("name3")
+                .birthday(LocalDate.of(1993, 3, 3))
+                .build());
+
+        assertEquals(3, user.getId());
+        assertEquals(0L, userDbStorage.getUserVersion(3).orElseThrow().getVersion());
+        assertTrue(userDbStorage.getUserVersion(3).orElseThrow().getUpdatedAt() != null);
+    }
+
     @Test
     public void testGetAllUsers() {
         List<User> users = userDbStorage.findAll();
@@ -107,6 +132,55 @@ class UserDbStorageTest {
                 .hasFieldOrPropertyWithValue("birthday", LocalDate.of(1992, 2, 2));
     }
 
+    @Test
+    public void testExistsById() {
+        assertTrue(userDbStorage.existsById(1));
+        assertFalse(userDbStorage.existsById(100));
+    }
+
+    @Test
+    public void testFindPage() {
+        addUsers3and4();
+
+        List<User> users = userDbStorage.findPage(0, 3);
+        assertEquals(3, users.size());
+        assertEquals(1, users.get(0).getId());
+        assertEquals(3, users.get(2).getId());
+
+        users = userDbStorage.findPage(3, 3);
+        assertEquals(1, users.size());
+        assertEquals(4, users.get(0).getId());
+
+        assertTrue(userDbStorage.findPage(4, 3).isEmpty());
+    }
+
+    @Test
+    public void testAddUsers() {
+        List<User> users = List.of(
+                User.builder().email("user3@yandex.ru").login("login3").birthday(LocalDate.of(1993, 3, 3)).build(),
+                User.builder().email("other@yandex.ru").login("login1").birthday(LocalDate.of(1994, 4, 4)).build(),
+                User.builder().email("user2@yandex.ru").login("login4").birthday(LocalDate.of(1995, 5, 5)).build(),
+                User.builder().email("user5@yandex.ru").login("login3").birthday(LocalDate.of(1996, 6, 6)).build(),
+                User.builder().email("user6@yandex.ru").login("login6").name("name6")
+                        .birthday(LocalDate.of(1997, 7, 7)).build()
+        );
+
+        Map<Integer, String> rejected = userDbStorage.addUsers(users);
+
+        assertEquals(Set.of(1, 2, 3), rejected.keySet());
+        assertTrue(rejected.get(1).contains("login1"));
+        assertTrue(rejected.get(2).contains("user2@yandex.ru"));
+        assertTrue(rejected.get(3).contains("login3"));
+        assertEquals(3, users.get(0).getId());
+        assertEquals(4, users.get(4).getId());
+        assertThat(userDbStorage.getUserById(3).get())
+                .hasFieldOrPropertyWithValue("login", "login3")
+                .hasFieldOrPropertyWithValue("name", "login3");
+        assertThat(userDbStorage.getUserById(4).get())
+                .hasFieldOrPropertyWithValue("name", "name6");
+        assertEquals(4, userDbStorage.findAll().size());
+    }
+
     @Test
     public void testUpdateUser() {
         User user = User.builder()
@@ -128,6 +202,26 @@ class UserDbStorageTest {
                 .hasFieldOrPropertyWithValue("birthday", LocalDate.of(1982, 12, 12));
     }
 
+    @Test
+    public void testUpdateUserComparesVersion() {
+        addUsers3and4();
+        User user = userDbStorage.getUserById(2).orElseThrow();
+        long version = userDbStorage.getUserVersion(2).orElseThrow().getContentVersion();
+        userDbStorage.addFriend(2, 3);
+        user.setName("name22");
+        userDbStorage.updateUser(user, version);
+        assertEquals(version + 1, userDbStorage.getUserVersion(2).orElseThrow().getContentVersion());
+        assertEquals("name22", userDbStorage.getUserById(2).orElseThrow().getName());
+
+        user.setName("name222");
+        assertThrows(VersionConflictException.class, () -> userDbStorage.updateUser(user, version));
+        assertEquals("name22", userDbStorage.getUserById(2).orElseThrow().getName());
+
+        user.setId(100);
+        assertThrows(NotFoundException.class, () -> userDbStorage.updateUser(user, version));
+        assertThrows(NotFoundException.class, () -> userDbStorage.updateUser(user));
+    }
+
     @Test
     public void testDeleteUser() {
         userDbStorage.deleteUser(1);
@@ -148,6 +242,24 @@ class UserDbStorageTest {
         assertEquals(new HashSet<>(Set.of(3, 4)), user.getFriends());
     }
 
+    @Test
+    public void testUserVersionChangesOnFriendship() {
+        addUsers3and4();
+        long initial = userDbStorage.getUserVersion(1).orElseThrow().getVersion();
+
+        userDbStorage.addFriend(1, 3);
+        userDbStorage.addFriend(1, 3);
+        assertEquals(initial + 1, userDbStorage.getUserVersion(1).orElseThrow().getVersion());
+        assertEquals(initial, userDbStorage.getUserVersion(3).orElseThrow().getVersion());
+        assertEquals(0L, userDbStorage.getUserVersion(1).orElseThrow().getContentVersion());
+        assertEquals(userDbStorage.getUserVersion(1).orElseThrow(),
+                userDbStorage.getUserById(1).orElseThrow().getVersion());
+
+        userDbStorage.deleteUser(3);
+        assertEquals(initial + 2, userDbStorage.getUserVersion(1).orElseThrow().getVersion());
+        assertTrue(userDbStorage.getUserVersion(3).isEmpty());
+    }
+
     @Test
     public void testGetFriends() {
         addUsers3and4();
@@ -178,6 +290,32 @@ class UserDbStorageTest {
         assertEquals(new HashSet<>(Set.of(3)), friendsId);
     }
 
+    @Test
+    public void testGetFriendSuggestions() {
+        addUsers3and4();
+        userDbStorage.addFriend(1, 2);
+        userDbStorage.addFriend(1, 3);
+        userDbStorage.addFriend(2, 4);
+        userDbStorage.addFriend(3, 4);
+        userDbStorage.addFriend(3, 1);
+
+        List<User> suggestions = userDbStorage.getFriendSuggestions(1, 10);
+
+        assertEquals(1, suggestions.size());
+        assertEquals(4, suggestions.get(0).getId());
+    }
+
+    @Test
+    public void testAddAndDeleteFriendAreIdempotent() {
+        assertTrue(userDbStorage.addFriend(1, 2));
+        assertFalse(userDbStorage.addFriend(1, 2));
+        assertEquals(new HashSet<>(Set.of(2)), userDbStorage.getUserById(1).get().getFriends());
+
+        assertTrue(userDbStorage.deleteFriend(1, 2));
+        assertFalse(userDbStorage.deleteFriend(1, 2));
+        assertEquals(new HashSet<>(), userDbStorage.getUserById(1).get().getFriends());
+    }
+
     @Test
     public void testDeleteFriend() {
         addUsers3and4();
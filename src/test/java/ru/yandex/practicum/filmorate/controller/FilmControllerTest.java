@@ -1,9 +1,11 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
@@ -24,4 +26,76 @@ public class FilmControllerTest {
                 .andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
 
+    @Test
+    public void ifBatchContainsInvalidFilm() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/films/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\": \"\", \"description\": \"description\", " +
+                                "\"releaseDate\": \"2000-01-01\", \"duration\": 100}]"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    public void conditionalUpdateReturnsNewETag() throws Exception {
+        String created = mockMvc.perform(MockMvcRequestBuilders.post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(filmJson(null, "film")))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Integer id = JsonPath.read(created, "$.id");
+        String etag = mockMvc.perform(MockMvcRequestBuilders.get("/films/" + id))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.version").doesNotExist())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        String next = mockMvc.perform(MockMvcRequestBuilders.put("/films")
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(filmJson(id, "film2")))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/films")
+                        .header(HttpHeaders.IF_MATCH, next)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(filmJson(id, "film3")))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.put("/films")
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(filmJson(id, "film4")))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+    }
+
+    @Test
+    public void likeReportsWhetherItChangedAnything() throws Exception {
+        String film = mockMvc.perform(MockMvcRequestBuilders.post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(filmJson(null, "film")))
+                .andReturn().getResponse().getContentAsString();
+        String user = mockMvc.perform(MockMvcRequestBuilders.post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\": \"liker@yandex.ru\", \"login\": \"liker\", " +
+                                "\"birthday\": \"1990-01-01\"}"))
+                .andReturn().getResponse().getContentAsString();
+        String like = "/films/" + JsonPath.read(film, "$.id") + "/like/" + JsonPath.read(user, "$.id");
+
+        mockMvc.perform(MockMvcRequestBuilders.put(like))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.changed").value(true));
+        mockMvc.perform(MockMvcRequestBuilders.put(like))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.changed").value(false));
+        mockMvc.perform(MockMvcRequestBuilders.delete(like))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.changed").value(true));
+        mockMvc.perform(MockMvcRequestBuilders.delete(like))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.changed").value(false));
+    }
+
+    private static String filmJson(Integer id, String name) {
+        return "{" + (id == null ? "" : "\"id\": " + id + ", ") + "\"name\": \"" + name + "\", " +
+                "\"description\": \"description\", \"releaseDate\": \"2000-01-01\", \"duration\": 100, " +
+                "\"mpa\": {\"id\": 1}}";
+    }
 }
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -23,4 +24,30 @@ public class UserControllerTest {
                         .content("{}"))
                 .andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void deleteFriendReportsWhetherItChangedAnything() throws Exception {
+        Integer id = createUser("first");
+        Integer friendId = createUser("second");
+        String friend = "/users/" + id + "/friends/" + friendId;
+
+        mockMvc.perform(MockMvcRequestBuilders.put(friend))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.delete(friend))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.changed").value(true));
+        mockMvc.perform(MockMvcRequestBuilders.delete(friend))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.changed").value(false));
+    }
+
+    private Integer createUser(String login) throws Exception {
+        String created = mockMvc.perform(MockMvcRequestBuilders.post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\": \"" + login + "@yandex.ru\", \"login\": \"" + login + "\", " +
+                                "\"birthday\": \"1990-01-01\"}"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(created, "$.id");
+    }
+}